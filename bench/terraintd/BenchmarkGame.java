@@ -0,0 +1,93 @@
+package terraintd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import terraintd.object.Enemy;
+import terraintd.pathfinder.FlowField;
+import terraintd.types.EnemyType;
+import terraintd.types.LevelSet;
+import terraintd.types.TowerType;
+import terraintd.types.TypeGenerator;
+import terraintd.types.World;
+
+/**
+ * Sets up the games that the benchmarks measure. The benchmarks have to be run from the directory that contains <code>terraintd/mods</code>.
+ */
+final class BenchmarkGame {
+
+	private static boolean generated;
+
+	private BenchmarkGame() {}
+
+	/**
+	 * Loads the types from the mods, the first time it is called
+	 */
+	static synchronized void generateTypes() {
+		if (generated) return;
+
+		TypeGenerator.generateValues();
+		generated = true;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>setUp</i></b><br>
+	 * <br>
+	 * {@code static void setUp(int enemies, int frames)}<br>
+	 * <br>
+	 * Starts a new game on the largest world, with a field of towers and the given number of enemies spread over every path. The enemies are placed far
+	 * enough from the goals that none of them get through in the given number of frames, so that they can be measured for that long without ending the
+	 * game.<br>
+	 * @param enemies The number of enemies
+	 * @param frames The number of frames that the game has to last
+	 *        </ul>
+	 */
+	static void setUp(int enemies, int frames) {
+		generateTypes();
+
+		World world = World.values()[0];
+		for (World w : World.values()) {
+			if (w.getWidth() * w.getHeight() > world.getWidth() * world.getHeight()) world = w;
+		}
+
+		GameLogic.reset(world, LevelSet.values()[0], 0);
+
+		Random rand = new Random(0);
+
+		TowerType[] towers = TowerType.values();
+		int placed = 0;
+		for (int y = 2; y < world.getHeight() && placed < 40; y += 4) {
+			for (int x = 2; x < world.getWidth() && placed < 40; x += 4) {
+				TowerType tower = towers[placed % towers.length];
+				if (!GameLogic.canPlaceObject(tower, x, y)) continue;
+
+				GameLogic.buyObject(tower);
+				GameLogic.buyObject(x, y);
+				placed++;
+			}
+		}
+		GameLogic.setSelectedEntity(null);
+
+		EnemyType[] types = EnemyType.values();
+		List<List<Integer>> starts = new ArrayList<>();
+		for (EnemyType type : types) {
+			FlowField field = GameLogic.getNodes(type);
+
+			List<Integer> nodes = new ArrayList<>();
+			for (int n = 0; n < field.size(); n++) {
+				if (field.isExplored(n) && field.getNextCount(n) > 0 && field.getCost(n) > 2 * frames * GameLogic.FRAME_TIME) nodes.add(n);
+			}
+			starts.add(nodes);
+		}
+
+		for (int i = 0; i < enemies; i++) {
+			List<Integer> nodes = starts.get(i % types.length);
+			if (nodes.isEmpty()) continue;
+
+			EnemyType type = types[i % types.length];
+			GameLogic.spawn(new Enemy(type, GameLogic.getNodes(type), nodes.get(rand.nextInt(nodes.size()))));
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package terraintd;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link GameLogic#processEntities()} and {@link GameLogic#processProjectiles()} with 100, 1000 and 10000 enemies on the field.<br>
+ * <br>
+ * Every frame changes the game, so each iteration starts a new game and then runs a batch of {@link #FRAMES} frames. The score is the time for the whole
+ * batch.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, batchSize = FrameBenchmark.FRAMES)
+@Measurement(iterations = 20, batchSize = FrameBenchmark.FRAMES)
+@Fork(2)
+public class FrameBenchmark {
+
+	/**
+	 * The number of frames in each iteration
+	 */
+	static final int FRAMES = 40;
+
+	@State(Scope.Thread)
+	public static class Entities {
+
+		@Param({"100", "1000", "10000"})
+		public int enemies;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			BenchmarkGame.setUp(enemies, FRAMES);
+		}
+	}
+
+	/**
+	 * A game in which the towers have been firing for {@link FrameBenchmark#FRAMES} frames without their projectiles being moved, so that the batch has
+	 * projectiles in flight to process
+	 */
+	@State(Scope.Thread)
+	public static class Projectiles {
+
+		@Param({"100", "1000", "10000"})
+		public int enemies;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			BenchmarkGame.setUp(enemies, 2 * FRAMES);
+
+			for (int frame = 0; frame < FRAMES; frame++)
+				GameLogic.processEntities();
+		}
+	}
+
+	@Benchmark
+	public void processEntities(Entities game) {
+		GameLogic.processEntities();
+	}
+
+	@Benchmark
+	public void processProjectiles(Projectiles game) {
+		GameLogic.processProjectiles();
+	}
+}
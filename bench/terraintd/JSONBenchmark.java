@@ -0,0 +1,50 @@
+package terraintd;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import terraintd.files.JSON;
+
+/**
+ * Measures {@link JSON#parseJSON(String)} on each prototype file of the bundled mods
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JSONBenchmark {
+
+	@Param({"base/prototypes/enemy.json", "base/prototypes/instant.json", "base/prototypes/level.json", "base/prototypes/obstacle.json",
+			"base/prototypes/tower.json", "base/prototypes/world.json", "upgrade-mod/prototypes/tower.json"})
+	public String file;
+
+	private String json;
+
+	@Setup
+	public void setUp() throws IOException {
+		json = new String(Files.readAllBytes(Paths.get("terraintd/mods", file)), StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public List<Object> parseJSON() {
+		return JSON.parseJSON(json);
+	}
+}
@@ -0,0 +1,53 @@
+package terraintd;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import terraintd.object.Entity;
+import terraintd.pathfinder.FlowField;
+import terraintd.pathfinder.PathFinder;
+import terraintd.types.EnemyType;
+import terraintd.types.World;
+
+/**
+ * Measures {@link PathFinder#calculatePaths(EnemyType, Entity[], World)} on each world of the base mod, with nothing placed on it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PathBenchmark {
+
+	@Param({"world-europe", "world-test", "world-matu", "world-perlin-a", "world-nn", "world-perlin-b"})
+	public String world;
+
+	private World w;
+	private EnemyType type;
+	private final Entity[] entities = new Entity[0];
+
+	@Setup
+	public void setUp() {
+		BenchmarkGame.generateTypes();
+
+		w = World.valueOf(world);
+		type = EnemyType.values()[0];
+	}
+
+	@Benchmark
+	public FlowField calculatePaths() {
+		return PathFinder.calculatePaths(type, entities, w);
+	}
+}
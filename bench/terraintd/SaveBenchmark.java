@@ -0,0 +1,59 @@
+package terraintd;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link GameLogic#save(Path)} on its own, and followed by {@link GameLogic#open(Path)} of the same file, with 100 and 1000 enemies on the field
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class SaveBenchmark {
+
+	@Param({"100", "1000"})
+	public int enemies;
+
+	private Path file;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkGame.setUp(enemies, 0);
+		file = Files.createTempFile("terraintd", ".tdg");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void save() {
+		GameLogic.save(file);
+	}
+
+	@Benchmark
+	public void saveOpen() throws IOException {
+		GameLogic.save(file);
+		GameLogic.open(file);
+	}
+}
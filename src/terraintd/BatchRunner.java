@@ -0,0 +1,278 @@
+package terraintd;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import terraintd.GameLogic.State;
+import terraintd.files.JSON;
+import terraintd.object.Entity;
+import terraintd.object.Gun;
+import terraintd.object.Tower;
+import terraintd.types.LevelSet;
+import terraintd.types.TowerType;
+import terraintd.types.TypeGenerator;
+import terraintd.types.World;
+
+/**
+ * Plays every combination of level set, world and tower layout without a display, and prints the results as CSV.<br>
+ * <br>
+ * Usage: <code>BatchRunner [-runs n] [-seed s] [-frames f] level-set[,level-set...] world[,world...] layout.json...</code><br>
+ * <br>
+ * A layout file lists towers in the order they are bought, as in <code>{"towers": [{"id": "...", "x": 0, "y": 0}, ...]}</code>. Each tower is bought as soon
+ * as the player can afford it. Towers that cannot be placed are skipped.<br>
+ * <br>
+ * The game's state is global, so each combination is played in its own JVM, with as many running at once as there are processors.
+ */
+public class BatchRunner {
+
+	private static final String HEADER = "level-set,world,layout,tower,x,y,placed,survival,levels,health,money,kills,damage";
+
+	private BatchRunner() {}
+
+	public static void main(String[] args) throws Exception {
+		int runs = 10;
+		long seed = 0;
+		int frames = 1000000;
+		boolean child = false;
+
+		List<String> params = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "-runs":
+					runs = Integer.parseInt(args[++i]);
+					break;
+				case "-seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				case "-frames":
+					frames = Integer.parseInt(args[++i]);
+					break;
+				case "-child":
+					child = true;
+					break;
+				default:
+					params.add(args[i]);
+			}
+		}
+
+		if (params.size() < 3) {
+			System.err.println("Usage: BatchRunner [-runs n] [-seed s] [-frames f] level-set[,level-set...] world[,world...] layout.json...");
+			System.exit(1);
+		}
+
+		if (child) {
+			TypeGenerator.generateValues();
+			for (String line : play(params.get(0), params.get(1), Paths.get(params.get(2)), runs, seed, frames))
+				System.out.println(line);
+		} else {
+			System.out.println(HEADER);
+			for (String line : runAll(params.get(0).split(","), params.get(1).split(","), params.subList(2, params.size()), runs, seed, frames))
+				System.out.println(line);
+		}
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>runAll</i></b><br>
+	 * <br>
+	 * {@code private static List<String> runAll(String[] levelSets, String[] worlds, List<String> layouts, int runs, long seed, int frames)}<br>
+	 * <br>
+	 * Plays every combination in a child JVM, running as many at once as there are processors.<br>
+	 * @return The CSV lines of every combination, in the order that the combinations were given.
+	 *         </ul>
+	 */
+	private static List<String> runAll(String[] levelSets, String[] worlds, List<String> layouts, int runs, long seed, int frames) throws Exception {
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		String classPath = System.getProperty("java.class.path");
+
+		ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		List<Future<List<String>>> results = new ArrayList<>();
+
+		for (String levelSet : levelSets) {
+			for (String world : worlds) {
+				for (String layout : layouts) {
+					List<String> command = new ArrayList<>();
+					command.add(java);
+					command.add("-Djava.awt.headless=true");
+					command.add("-cp");
+					command.add(classPath);
+					command.add(BatchRunner.class.getName());
+					command.add("-child");
+					command.add("-runs");
+					command.add(Integer.toString(runs));
+					command.add("-seed");
+					command.add(Long.toString(seed));
+					command.add("-frames");
+					command.add(Integer.toString(frames));
+					command.add(levelSet);
+					command.add(world);
+					command.add(layout);
+
+					results.add(pool.submit(() -> {
+						Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+						List<String> lines = new ArrayList<>();
+						try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+							String line;
+							while ((line = reader.readLine()) != null)
+								lines.add(line);
+						}
+
+						if (process.waitFor() != 0) System.err.printf("%s %s %s exited with code %d%n", levelSet, world, layout, process.exitValue());
+
+						return lines;
+					}));
+				}
+			}
+		}
+
+		List<String> lines = new ArrayList<>();
+		try {
+			for (Future<List<String>> result : results)
+				lines.addAll(result.get());
+		} finally {
+			pool.shutdown();
+		}
+
+		return lines;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>play</i></b><br>
+	 * <br>
+	 * {@code private static List<String> play(String levelSetId, String worldId, Path layout, int runs, long seed, int frames)}<br>
+	 * <br>
+	 * Plays one combination <code>runs</code> times in this JVM.<br>
+	 * @param frames The most frames that a run may take before it is counted as lost
+	 * @return A summary line, followed by one line for each tower in the layout.
+	 *         </ul>
+	 */
+	private static List<String> play(String levelSetId, String worldId, Path layout, int runs, long seed, int frames) throws IOException {
+		LevelSet levelSet = LevelSet.valueOf(levelSetId);
+		if (levelSet == null) throw new IllegalArgumentException("Unknown level set " + levelSetId);
+
+		World world = World.valueOf(worldId);
+		if (world == null) throw new IllegalArgumentException("Unknown world " + worldId);
+
+		List<Placement> placements = readLayout(layout);
+
+		int won = 0;
+		double levels = 0, health = 0, money = 0;
+		int[] placed = new int[placements.size()];
+		double[] kills = new double[placements.size()], damage = new double[placements.size()];
+
+		for (int run = 0; run < runs; run++) {
+			GameLogic.reset(world, levelSet, seed + run);
+
+			Tower[] towers = new Tower[placements.size()];
+			int next = 0;
+
+			for (int frame = 0; frame < frames; frame++) {
+				while (next < placements.size() && placements.get(next).type.getCost() <= GameLogic.getMoney()) {
+					Placement p = placements.get(next);
+					if (GameLogic.canPlaceObject(p.type, p.x, p.y)) {
+						GameLogic.buyObject(p.type);
+						GameLogic.buyObject(p.x, p.y);
+
+						Entity selected = GameLogic.getSelectedEntity();
+						if (selected instanceof Tower) towers[next] = (Tower) selected;
+					}
+					next++;
+				}
+
+				if (GameLogic.getState() == State.COMPLETE) GameLogic.beginLevel();
+				if (GameLogic.simulate(1) == 0) break;
+			}
+
+			if (GameLogic.getState() == State.WON) {
+				won++;
+				levels += levelSet.levels.length;
+			} else {
+				levels += GameLogic.getLevelIndex();
+			}
+			health += GameLogic.getHealth();
+			money += GameLogic.getMoney();
+
+			for (int i = 0; i < towers.length; i++) {
+				if (towers[i] == null) continue;
+
+				Gun gun = towers[i].getGun();
+				placed[i]++;
+				if (gun != null) {
+					kills[i] += gun.getKills();
+					damage[i] += gun.getDamageDone();
+				}
+			}
+		}
+
+		double totalKills = 0, totalDamage = 0;
+		for (int i = 0; i < placements.size(); i++) {
+			totalKills += kills[i];
+			totalDamage += damage[i];
+		}
+
+		String prefix = csv(levelSetId) + "," + csv(worldId) + "," + csv(layout.toString()) + ",";
+
+		List<String> lines = new ArrayList<>();
+		lines.add(prefix + String.format(Locale.ROOT, ",,,,%.4f,%.4f,%.4f,%.2f,%.4f,%.4f", (double) won / runs, levels / runs, health / runs, money / runs, totalKills / runs, totalDamage / runs));
+
+		for (int i = 0; i < placements.size(); i++) {
+			Placement p = placements.get(i);
+			lines.add(prefix + String.format(Locale.ROOT, "%s,%d,%d,%.4f,,,,,%.4f,%.4f", csv(p.type.id), p.x, p.y, (double) placed[i] / runs, kills[i] / runs, damage[i] / runs));
+		}
+
+		return lines;
+	}
+
+	private static List<Placement> readLayout(Path layout) throws IOException {
+		List<?> json = JSON.parseJSON(new String(Files.readAllBytes(layout)));
+		if (!(json.get(0) instanceof Map<?, ?>) || !(((Map<?, ?>) json.get(0)).get("towers") instanceof List<?>)) throw new IOException(layout + " does not contain a list of towers");
+
+		List<Placement> placements = new ArrayList<>();
+		for (Object o : (List<?>) ((Map<?, ?>) json.get(0)).get("towers")) {
+			if (!(o instanceof Map<?, ?>)) continue;
+
+			Map<?, ?> tower = (Map<?, ?>) o;
+
+			TowerType type = TowerType.valueOf(String.format("%s", tower.get("id")));
+			if (type == null) throw new IOException(layout + ": unknown tower " + tower.get("id"));
+
+			int x = tower.get("x") instanceof Number ? ((Number) tower.get("x")).intValue() : 0;
+			int y = tower.get("y") instanceof Number ? ((Number) tower.get("y")).intValue() : 0;
+
+			placements.add(new Placement(type, x, y));
+		}
+
+		return placements;
+	}
+
+	private static String csv(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	private static class Placement {
+
+		final TowerType type;
+		final int x, y;
+
+		Placement(TowerType type, int x, int y) {
+			this.type = type;
+			this.x = x;
+			this.y = y;
+		}
+	}
+}
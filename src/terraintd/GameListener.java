@@ -0,0 +1,94 @@
+package terraintd;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import terraintd.GameLogic.State;
+import terraintd.object.Entity;
+import terraintd.types.Purchasable;
+
+/**
+ * Receives updates from {@link GameLogic} whenever something that a view of the game shows may have changed. {@link GameLogic} itself never touches the
+ * window, so without any listeners the game can be run without a display.<br>
+ * <br>
+ * Every method does nothing by default.
+ */
+public interface GameListener {
+
+	/**
+	 * Called after each frame that has been processed
+	 */
+	default void frameProcessed() {}
+
+	/**
+	 * Called once per frame while the game is paused
+	 */
+	default void framePaused() {}
+
+	/**
+	 * Called when the player's money or health may have changed
+	 */
+	default void statsChanged() {}
+
+	/**
+	 * Called when an entity has been placed, upgraded or sold
+	 */
+	default void entitiesChanged() {}
+
+	/**
+	 * <ul>
+	 * <li><b><i>levelEnded</i></b><br>
+	 * <br>
+	 * {@code default void levelEnded(State state)}<br>
+	 * <br>
+	 * Called when the current level has been lost or won. If <code>state</code> is {@link State#COMPLETE}, the next level does not start until
+	 * {@link GameLogic#beginLevel()} is called.<br>
+	 * @param state The state that the game is now in
+	 *        </ul>
+	 */
+	default void levelEnded(State state) {}
+
+	/**
+	 * Called when the next level has been started with {@link GameLogic#beginLevel()}
+	 */
+	default void levelStarted() {}
+
+	/**
+	 * Called when the selected entity has changed
+	 */
+	default void selectionChanged(Entity selected) {}
+
+	/**
+	 * Called once per frame if the selected entity may have changed
+	 */
+	default void selectionUpdated() {}
+
+	/**
+	 * Called when the player has started or stopped buying something. <code>buying</code> is <code>null</code> if the player has stopped.
+	 */
+	default void buyingChanged(Purchasable buying) {}
+
+	/**
+	 * Called when a new game has been started
+	 */
+	default void gameReset() {}
+
+	/**
+	 * Called when a saved game has been opened. {@link #gameReset()} is not called first, although the game that was being played has been replaced.
+	 */
+	default void gameOpened() {}
+
+	/**
+	 * <ul>
+	 * <li><b><i>saveFailed</i></b><br>
+	 * <br>
+	 * {@code default void saveFailed(Path path, IOException e)}<br>
+	 * <br>
+	 * Called when the game could not be written to a file. Autosaves are written in the background, so for {@link GameLogic#AUTOSAVE_PATH} this is called
+	 * on the thread that was writing the file.<br>
+	 * @param path The file that could not be written
+	 * @param e The error that stopped it from being written
+	 *        </ul>
+	 */
+	default void saveFailed(Path path, IOException e) {}
+}
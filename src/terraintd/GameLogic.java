@@ -2,40 +2,60 @@ package terraintd;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
 import javax.swing.Timer;
 
 import terraintd.files.Config;
 import terraintd.files.JSON;
+import terraintd.files.ObfuscatedInputStream;
+import terraintd.files.SaveInputStream;
+import terraintd.files.SaveOutputStream;
 import terraintd.object.CollidableEntity;
 import terraintd.object.Enemy;
+import terraintd.object.EnemyGrid;
+import terraintd.object.EnemyStore;
+import terraintd.object.EnemyStore.Credits;
 import terraintd.object.Entity;
+import terraintd.object.EntityRegistry;
 import terraintd.object.Gun;
 import terraintd.object.Instant;
 import terraintd.object.Obstacle;
 import terraintd.object.Projectile;
+import terraintd.object.ProjectileBuffer;
+import terraintd.object.ProjectilePool;
 import terraintd.object.StatusEffect;
 import terraintd.object.Tower;
 import terraintd.object.Weapon;
+import terraintd.pathfinder.FlowField;
+import terraintd.pathfinder.FlowFieldCache;
 import terraintd.pathfinder.Node;
-import terraintd.pathfinder.PathFinder;
 import terraintd.types.CollidableType;
 import terraintd.types.DeliveryType;
 import terraintd.types.EnemyType;
+import terraintd.types.IdType;
 import terraintd.types.InstantType;
 import terraintd.types.Level;
 import terraintd.types.LevelSet;
@@ -48,10 +68,6 @@ import terraintd.types.TowerType;
 import terraintd.types.TowerUpgrade;
 import terraintd.types.Upgrade;
 import terraintd.types.World;
-import terraintd.window.BuyPanel;
-import terraintd.window.GamePanel;
-import terraintd.window.InfoPanel;
-import terraintd.window.Window;
 
 public class GameLogic implements ActionListener {
 
@@ -79,22 +95,58 @@ public class GameLogic implements ActionListener {
 
 	private static final GameLogic logic = new GameLogic();
 
-	public final static Random rand = new Random();
+	/**
+	 * The random numbers of the current game. They are seeded by {@link #reset(World, LevelSet, long)}.
+	 */
+	public static final RandomStreams random = new RandomStreams(ThreadLocalRandom.current().nextLong());
+
+	/**
+	 * The projectiles that have stopped flying, for weapons to fire again. It is emptied by {@link #reset(World, LevelSet, long)}.
+	 */
+	public static final ProjectilePool projectilePool = new ProjectilePool();
 
 	public static final Config cfg = new Config();
 
 	private static State state = State.PLAYING;
 
+	/**
+	 * The file that the game is saved to every {@link #getAutosaveInterval()} seconds
+	 */
+	public static final Path AUTOSAVE_PATH = Paths.get("terraintd/autosave.tdg");
+
+	/**
+	 * The directory that replays are written to while {@link #isRecordingReplays()}, one file per seed
+	 */
+	public static final Path REPLAY_DIRECTORY = Paths.get("terraintd/replays");
+
 	private static boolean saved = true;
 	private static Path lastSaveLocation = null;
 
-	private static List<Entity> entities;
-	private static List<Projectile> projectiles;
+	private static int autosaveInterval = 0, framesToAutosave = 0;
+	private static Future<?> lastAutosave = null;
+	private static final ExecutorService autosaver = Executors.newSingleThreadExecutor(r -> {
+		Thread thread = new Thread(r, "Autosave");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static EntityRegistry entities;
+	private static final ProjectileBuffer projectiles = new ProjectileBuffer();
+	private static EnemyGrid enemyGrid;
+	private static final List<Enemy> inRange = new ArrayList<>(), nearby = new ArrayList<>();
+
+	/**
+	 * The number of enemies at which {@link #moveEnemies(int, int)} starts moving them on several threads, and the number that each thread moves at a time
+	 */
+	static int parallelMoveThreshold = 2048;
+	private static final int MOVE_CHUNK = 512;
+	private static byte[] moveResults = new byte[16];
+	private static Credits[] moveCredits = {};
 
 	private static LevelSet currentLevelSet;
 	private static int levelIndex;
 	private static World currentWorld;
-	private static HashMap<EnemyType, Node[][][]> nodes = new HashMap<>(EnemyType.values().length);
+	private static final FlowFieldCache flowFields = new FlowFieldCache();
 
 	private static int money;
 	private static double health, maxHealth;
@@ -106,12 +158,22 @@ public class GameLogic implements ActionListener {
 
 	private static long t0, t1, t2;
 
+	/**
+	 * The number of frames that have been run since the game was reset
+	 */
+	private static int frame;
+
+	private static boolean recordReplays = false;
+	private static Replay recording = null;
+
 	private static boolean wasPaused = true;
 	private static boolean pauseOnBuy = true;
 	private static Purchasable buying = null;
 
 	private static Entity selected = null;
 
+	private static final List<GameListener> listeners = new CopyOnWriteArrayList<>();
+
 	public static void start() {
 		if (!timer.isRunning()) timer.start();
 		pauseTimer.stop();
@@ -119,15 +181,84 @@ public class GameLogic implements ActionListener {
 
 	public static void stop() {
 		timer.stop();
-		if (!pauseTimer.isRunning()) pauseTimer.start();
+
+		// The pause timer only repaints, so it is not needed without a display
+		if (!pauseTimer.isRunning() && !listeners.isEmpty()) pauseTimer.start();
+	}
+
+	public static void addListener(GameListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void removeListener(GameListener listener) {
+		listeners.remove(listener);
 	}
 
 	public static void reset() {
-		if (InfoPanel.infoPanel != null) Window.setButtonsEnabled(true);
+		reset(World.values()[5], LevelSet.values()[0]);
+	}
 
-		stop();
+	/**
+	 * <ul>
+	 * <li><b><i>reset</i></b><br>
+	 * <br>
+	 * {@code public static void reset(World world, LevelSet levelSet)}<br>
+	 * <br>
+	 * Starts a new game with a new seed.<br>
+	 * @param world The world to play in
+	 * @param levelSet The levels to play
+	 *        </ul>
+	 */
+	public static void reset(World world, LevelSet levelSet) {
+		reset(world, levelSet, ThreadLocalRandom.current().nextLong());
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>reset</i></b><br>
+	 * <br>
+	 * {@code public static void reset(World world, LevelSet levelSet, long seed)}<br>
+	 * <br>
+	 * Starts a new game. Games that are started with the same seed, and played the same way, turn out the same.<br>
+	 * @param world The world to play in
+	 * @param levelSet The levels to play
+	 * @param seed The seed of the {@link #random} numbers of the game
+	 *        </ul>
+	 */
+	public static void reset(World world, LevelSet levelSet, long seed) {
+		writeReplay();
+
+		recording = null;
+
+		clear(world, levelSet, seed);
+
+		flowFields.calculate(EnemyType.values(), getEntities(), currentWorld);
+
+		if (recordReplays) recording = new Replay(world.id, levelSet.id, seed);
 
-		Window.selectButton(0);
+		for (GameListener l : listeners)
+			l.gameReset();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>clear</i></b><br>
+	 * <br>
+	 * {@code private static void clear(World world, LevelSet levelSet, long seed)}<br>
+	 * <br>
+	 * Puts the game back in the state it starts in, with no entities or projectiles. Unlike {@link #reset(World, LevelSet, long)}, it does not calculate paths,
+	 * start a recording, or tell the listeners, so that {@link #load(SavedGame)} can calculate the paths and tell the listeners once everything has been
+	 * loaded.<br>
+	 * @param world The world to play in
+	 * @param levelSet The levels to play
+	 * @param seed The seed of the {@link #random} numbers of the game
+	 *        </ul>
+	 */
+	private static void clear(World world, LevelSet levelSet, long seed) {
+		random.setSeed(seed);
+		frame = 0;
+
+		stop();
 		setSpeed(1);
 
 		state = State.PLAYING;
@@ -135,9 +266,9 @@ public class GameLogic implements ActionListener {
 		saved = true;
 		lastSaveLocation = null;
 
-		currentWorld = World.values()[5];
+		currentWorld = world;
 		levelIndex = 0;
-		currentLevelSet = LevelSet.values()[0];
+		currentLevelSet = levelSet;
 
 		money = currentLevelSet.levels[levelIndex].money;
 		health = maxHealth = currentLevelSet.health;
@@ -145,20 +276,14 @@ public class GameLogic implements ActionListener {
 		timeToNextEnemy = currentLevelSet.levels[levelIndex].units[0].delay;
 		enemyIndex = 0;
 
-		entities = new ArrayList<>();
-		projectiles = new ArrayList<>();
-
-		for (EnemyType type : EnemyType.values())
-			nodes.put(type, PathFinder.calculatePaths(type));
+		entities = new EntityRegistry();
+		projectiles.clear();
+		projectiles.publish();
+		projectilePool.clear();
+		enemyGrid = new EnemyGrid(currentWorld.getWidth(), currentWorld.getHeight());
 
 		selected = null;
 		buying = null;
-
-		GamePanel.resetView();
-		Window.repaintWindow();
-		Window.updateLevel();
-		InfoPanel.setDisplayedObject(null);
-		if (BuyPanel.buyPanel != null) BuyPanel.updateButtons();
 	}
 
 	protected static void nextLevel() {
@@ -171,35 +296,94 @@ public class GameLogic implements ActionListener {
 		timeToNextEnemy = currentLevelSet.levels[levelIndex].units[0].delay;
 		enemyIndex = 0;
 
-		projectiles = new ArrayList<>();
+		for (int i = 0; i < projectiles.length(); i++) {
+			if (projectiles.get(i) != null) projectilePool.release(projectiles.get(i));
+		}
+		projectiles.clear();
 
 		wasPaused = true;
 	}
 
 	public static void setSpeed(double mult) {
+		if (recording != null) recording.record(frame, "speed", "multiplier", mult);
+
 		timer.setDelay((int) (FRAME_TIME * 1000.0 / mult));
 	}
 
 	/**
-	 * Runs a single frame
+	 * <ul>
+	 * <li><b><i>beginLevel</i></b><br>
+	 * <br>
+	 * {@code public static synchronized void beginLevel()}<br>
+	 * <br>
+	 * Starts the next level after the last one has been completed.<br>
+	 * </ul>
 	 */
+	public static synchronized void beginLevel() {
+		if (state != State.COMPLETE) return;
+
+		if (recording != null) recording.record(frame, "begin-level");
+
+		state = State.PLAYING;
+
+		for (GameListener l : listeners)
+			l.levelStarted();
+	}
+
 	@Override
-	public synchronized void actionPerformed(ActionEvent e) {
+	public void actionPerformed(ActionEvent e) {
 		if (e.getSource() == pauseTimer) {
-			if (selected != null) {
-				Rectangle2D rect = selected.getRectangle();
-				GamePanel.repaintPanel((int) (GamePanel.getDx() + rect.getX() * GamePanel.getTile()), (int) (GamePanel.getDy() + rect.getY() * GamePanel.getTile()), (int) (GamePanel.getTile() * rect.getWidth()), (int) (GamePanel.getTile() * rect.getHeight()));
-			}
+			for (GameListener l : listeners)
+				l.framePaused();
 		} else {
-			saved = false;
-			t0 = System.nanoTime();
-			processEntities();
-			t1 = System.nanoTime();
-			processProjectiles();
-			t2 = System.nanoTime();
-			GamePanel.repaintPanel();
-			BuyPanel.updateButtons();
+			step();
+		}
+	}
+
+	/**
+	 * Runs a single frame
+	 */
+	public static synchronized void step() {
+		saved = false;
+		t0 = System.nanoTime();
+		processEntities();
+		t1 = System.nanoTime();
+		processProjectiles();
+		t2 = System.nanoTime();
+
+		projectiles.publish();
+
+		frame++;
+		if (recording != null && (state == State.FAILED || state == State.WON)) {
+			writeReplay();
+			recording = null;
+		}
+
+		if (autosaveInterval > 0 && --framesToAutosave <= 0) autosave();
+
+		for (GameListener l : listeners)
+			l.frameProcessed();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>simulate</i></b><br>
+	 * <br>
+	 * {@code public static int simulate(int frames)}<br>
+	 * <br>
+	 * Runs the given number of frames as fast as possible, without waiting for the timer. Stops early if the current level is lost, won, or completed.<br>
+	 * @param frames The maximum number of frames to run
+	 * @return The number of frames that were run
+	 *         </ul>
+	 */
+	public static int simulate(int frames) {
+		int i = 0;
+		while (i < frames && state == State.PLAYING) {
+			step();
+			i++;
 		}
+
+		return i;
 	}
 
 	/**
@@ -221,48 +405,30 @@ public class GameLogic implements ActionListener {
 		return new long[] {t2 - t0, t1 - t0, t2 - t1};
 	}
 
-	private static final Runnable nextLevel = new Runnable() {
-
-		@Override
-		public void run() {
-			try {
-				Thread.sleep(2500);
-			} catch (InterruptedException e) {}
-			state = State.PLAYING;
-			
-			if (InfoPanel.infoPanel != null) Window.setButtonsEnabled(true);
-			Window.repaintWindow();
-			Window.updateLevel();
-			if (BuyPanel.buyPanel != null) BuyPanel.updateButtons();
-		}
-	};
-
-	private static void processEntities() {
+	static void processEntities() {
 		if (health <= 0) {
 			health = 0;
 			stop();
-			Window.selectButton(0);
 			setSpeed(1);
 			state = State.FAILED;
-			BuyPanel.updateButtons();
-			InfoPanel.paintHealthBar();
-			Window.setButtonsEnabled(false);
-			GamePanel.repaintPanel();
+
+			for (GameListener l : listeners) {
+				l.statsChanged();
+				l.levelEnded(state);
+			}
 			return;
-		} else if (enemyIndex == currentLevelSet.levels[levelIndex].units.length && !entities.stream().anyMatch(e -> e instanceof Enemy)) {
-			InfoPanel.updateMoney();
+		} else if (enemyIndex == currentLevelSet.levels[levelIndex].units.length && entities.enemies.size() == 0) {
 			stop();
-			Window.selectButton(0);
 			setSpeed(1);
-			BuyPanel.updateButtons();
-			Window.setButtonsEnabled(false);
-			GamePanel.repaintPanel();
 			if (currentLevelSet.levels.length - 1 == levelIndex) {
 				state = State.WON;
 			} else {
 				nextLevel();
-				new Thread(nextLevel).start();
-				state = State.COMPLETE;
+			}
+
+			for (GameListener l : listeners) {
+				l.statsChanged();
+				l.levelEnded(state);
 			}
 			return;
 		}
@@ -272,181 +438,302 @@ public class GameLogic implements ActionListener {
 			EnemyType et = EnemyType.valueOf(currentLevelSet.levels[levelIndex].units[enemyIndex].typeId);
 			if (et == null || enemyIndex == currentLevelSet.levels[levelIndex].units.length) continue;
 
-			ArrayList<Node> spawnPoints = new ArrayList<>();
-			Node[][][] nodes = GameLogic.nodes.get(et);
+			ArrayList<Integer> spawnPoints = new ArrayList<>();
+			FlowField field = flowFields.get(et);
 
 			for (Node n : currentWorld.spawnpoints) {
-				if (nodes[n.y][n.x][n.top ? 1 : 0].getNextNodes().length > 0) spawnPoints.add(nodes[n.y][n.x][n.top ? 1 : 0]);
+				int index = field.getIndex(n);
+				if (field.isExplored(index) && field.getNextCount(index) > 0) spawnPoints.add(index);
 			}
 
-			if (spawnPoints.size() == 0) continue; // TODO Remove obstacles?
+			if (spawnPoints.size() == 0) break; // TODO Remove obstacles?
 
-			entities.add(new Enemy(et, spawnPoints.get(rand.nextInt(spawnPoints.size()))));
+			spawn(new Enemy(et, field, spawnPoints.get(random.spawns().nextInt(spawnPoints.size()))));
 
 			timeToNextEnemy += currentLevelSet.levels[levelIndex].units[enemyIndex++].delay;
 		}
 
 		if (selected != null && !entities.contains(selected)) {
 			setSelectedEntity(null);
-			InfoPanel.refreshDisplay();
+			for (GameListener l : listeners)
+				l.selectionUpdated();
 		} else if (selected instanceof Enemy) {
-			InfoPanel.refreshDisplay();
+			for (GameListener l : listeners)
+				l.selectionUpdated();
 		}
 
-		Entity[] ents = entities.toArray(new Entity[entities.size()]);
-		for (Entity e : ents) {
-			if (e instanceof Weapon) {
-				Gun g = ((Weapon) e).getGun();
-				if (g != null) {
-					double min = !g.getTargetType().max ? Float.MAX_VALUE : Integer.MIN_VALUE;
-					Enemy target = null;
+		// Entities act in the order they were added. Moving an enemy only changes that enemy, so the enemies between two entities that fire are moved together, and
+		// every weapon and instant still sees the enemies before it in the list moved and the ones after it not yet moved.
+		entities.compact();
 
-					for (Entity entity : ents) {
-						if (!(entity instanceof Enemy)) continue;
+		int moved = 0, enemies = 0;
+		for (int i = 0, length = entities.all.length(); i < length; i++) {
+			Entity e = entities.all.get(i);
+			if (e == null) continue;
 
-						Enemy enemy = (Enemy) entity;
-						if (enemy.getFutureHealth() < 0) continue;
+			if (e instanceof Weapon && ((Weapon) e).getGun() != null) {
+				moveEnemies(moved, enemies);
+				moved = enemies;
 
-						final double d = distanceSq(enemy.getX(), g.shooter.getX(), enemy.getY(), g.shooter.getY());
-						if (d > g.range * g.range) continue;
+				Weapon w = (Weapon) e;
+				Gun g = w.getGun();
+				Enemy target = findTarget(g);
 
-						switch (g.getTargetType()) {
-							case FARTHEST:
-								if (d > min) {
-									min = d;
-									target = enemy;
-								}
-								break;
-							case FIRST:
-								if (enemy.getNextNode().getCost() < min) {
-									min = enemy.getNextNode().getCost();
-									target = enemy;
-								}
-								break;
-							case LAST:
-								if (enemy.getNextNode().getCost() > min) {
-									min = enemy.getNextNode().getCost();
-									target = enemy;
-								}
-								break;
-							case NEAREST:
-								if (d < min) {
-									min = d;
-									target = enemy;
-								}
-								break;
-							case STRONGEST:
-								if (enemy.getHealth() > min) {
-									min = enemy.getHealth();
-									target = enemy;
-								}
-								break;
-							case VALUABLEST:
-								if (enemy.type.reward > min) {
-									min = enemy.type.reward;
-									target = enemy;
-								}
-								break;
-							case WEAKEST:
-								if (enemy.getHealth() < min) {
-									min = enemy.getHealth();
-									target = enemy;
-								}
-								break;
-							case WORTHLESSEST:
-								if (enemy.type.reward < min) {
-									min = enemy.type.reward;
-									target = enemy;
-								}
-								break;
-						}
-					}
+				w.target(target);
 
-					((Weapon) e).target(target);
+				for (Projectile p : w.createProjectiles(g.fire())) {
+					if (p.getType().delivery == DeliveryType.SINGLE_TARGET && p.getType().follow && p.getTarget() instanceof Enemy) ((Enemy) p.getTarget()).damageFuture(p);
 
-					for (Projectile p : ((Weapon) e).createProjectiles(g.fire())) {
-						if (p.type.delivery == DeliveryType.SINGLE_TARGET && p.type.follow && p.getTarget() instanceof Enemy) ((Enemy) p.getTarget()).damageFuture(p);
-
-						projectiles.add(p);
-					}
+					projectiles.add(p);
 				}
 			}
 
-			if (e instanceof Enemy) {
-				Enemy enemy = (Enemy) e;
-				if (enemy.getDead() != 0) {
-					if (enemy.die()) entities.remove(enemy);
+			if (e instanceof Enemy) enemies++;
+
+			if (e instanceof Instant) {
+				Instant instant = (Instant) e;
+				if (instant.isDone()) {
+					entities.remove(instant);
 					continue;
 				}
 
-				if (!enemy.move()) {
-					health -= enemy.getDamage();
-					enemy.damage(Float.MAX_VALUE);
-				}
+				moveEnemies(moved, enemies);
+				moved = enemies;
+
+				for (Projectile p : instant.fire()) {
+					if (p.getType().delivery == DeliveryType.SINGLE_TARGET && p.getType().follow && p.getTarget() instanceof Enemy) ((Enemy) p.getTarget()).damageFuture(p);
 
-				if (enemy.damage(0)) {
-					money += enemy.type.reward;
+					projectiles.add(p);
 				}
 			}
+		}
 
-			if (e instanceof Instant) {
-				if (((Instant) e).isDone()) {
-					entities.remove(e);
+		moveEnemies(moved, enemies);
+
+		entities.compact();
+
+		for (GameListener l : listeners)
+			l.statsChanged();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>moveEnemies</i></b><br>
+	 * <br>
+	 * {@code private static void moveEnemies(int from, int to)}<br>
+	 * <br>
+	 * Moves the enemies in the given slots of the {@link EnemyStore} of the registry by one frame. When there are at least {@link #parallelMoveThreshold} of
+	 * them and more than one processor, they are moved in chunks of {@link #MOVE_CHUNK} on the common fork-join pool. Moving an enemy only changes the enemy
+	 * itself, so what it does to the rest of the game is applied afterwards, on this thread and in the order of the enemies, which gives the same result however
+	 * the work was split.<br>
+	 * @param from The first slot to move
+	 * @param to The slot after the last one to move
+	 *        </ul>
+	 */
+	private static void moveEnemies(int from, int to) {
+		if (from == to) return;
+
+		EnemyStore store = entities.enemyStore;
+		int length = to - from;
+		int chunks = length < parallelMoveThreshold || ForkJoinPool.getCommonPoolParallelism() < 2 ? 1 : (length + MOVE_CHUNK - 1) / MOVE_CHUNK;
+
+		if (moveResults.length < to) moveResults = new byte[Math.max(to, 2 * moveResults.length)];
+		if (moveCredits.length < chunks) {
+			int old = moveCredits.length;
+			moveCredits = Arrays.copyOf(moveCredits, chunks);
+			for (int c = old; c < chunks; c++)
+				moveCredits[c] = new Credits();
+		}
+
+		if (chunks == 1) {
+			store.move(from, to, moveResults, moveCredits[0]);
+		} else {
+			byte[] results = moveResults;
+			IntStream.range(0, chunks).parallel().forEach(c -> store.move(from + c * MOVE_CHUNK, Math.min(to, from + (c + 1) * MOVE_CHUNK), results, moveCredits[c]));
+		}
+
+		for (int c = 0; c < chunks; c++)
+			moveCredits[c].apply();
+
+		for (int i = from; i < to; i++) {
+			Enemy enemy = entities.enemies.get(i);
+
+			switch (moveResults[i]) {
+				case EnemyStore.REMOVED:
+				case EnemyStore.DYING:
 					continue;
-				}
+				case EnemyStore.GONE:
+					entities.remove(enemy);
+					enemyGrid.remove(enemy);
+					continue;
+				case EnemyStore.LEAKED:
+					health -= enemy.getDamage();
+					enemy.damage(Float.MAX_VALUE);
+					break;
+			}
+			enemyGrid.update(enemy);
 
-				for (Projectile p : ((Instant) e).fire()) {
-					if (p.type.delivery == DeliveryType.SINGLE_TARGET && p.type.follow && p.getTarget() instanceof Enemy) ((Enemy) p.getTarget()).damageFuture(p);
+			if (enemy.damage(0)) {
+				money += enemy.type.reward;
+			}
+		}
+	}
 
-					projectiles.add(p);
-				}
+	/**
+	 * Adds the given enemy to the game, as if it had just spawned
+	 */
+	static void spawn(Enemy enemy) {
+		entities.add(enemy);
+		enemyGrid.add(enemy);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>findTarget</i></b><br>
+	 * <br>
+	 * {@code private static Enemy findTarget(Gun g)}<br>
+	 * <br>
+	 * Picks the enemy that the given gun should aim at, according to its {@link TargetType}. Only the enemies in the cells of the grid that overlap the gun's range
+	 * are considered. Ties go to the enemy that was created first.<br>
+	 * @param g The gun that is looking for a target
+	 * @return The enemy to target, or <code>null</code> if there are no enemies in range
+	 *         </ul>
+	 */
+	private static Enemy findTarget(Gun g) {
+		final TargetType targetType = g.getTargetType();
+
+		double min = !targetType.max ? Float.MAX_VALUE : Integer.MIN_VALUE;
+		Enemy target = null;
+
+		enemyGrid.query(g.shooter.getX(), g.shooter.getY(), g.range, inRange);
+		for (int i = 0; i < inRange.size(); i++) {
+			Enemy enemy = inRange.get(i);
+			if (enemy.getFutureHealth() < 0) continue;
+
+			double value;
+			switch (targetType) {
+				case FARTHEST:
+				case NEAREST:
+					value = distanceSq(enemy.getX(), g.shooter.getX(), enemy.getY(), g.shooter.getY());
+					break;
+				case FIRST:
+				case LAST:
+					value = enemy.getNextCost();
+					break;
+				case STRONGEST:
+				case WEAKEST:
+					value = enemy.getHealth();
+					break;
+				case VALUABLEST:
+				case WORTHLESSEST:
+					value = enemy.type.reward;
+					break;
+				default:
+					continue;
+			}
+
+			if (targetType.max ? value > min : value < min) {
+				min = value;
+				target = enemy;
+			} else if (value == min && target != null && enemy.uid < target.uid) {
+				target = enemy;
 			}
 		}
-		
-		InfoPanel.updateMoney();
-		InfoPanel.paintHealthBar();
+
+		return target;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getEnemiesInRange</i></b><br>
+	 * <br>
+	 * {@code public static Enemy[] getEnemiesInRange(double x, double y, double range)}<br>
+	 * <br>
+	 * @return every enemy whose center is within <code>range</code> of the given position, in the order they were created.
+	 *         </ul>
+	 */
+	public static Enemy[] getEnemiesInRange(double x, double y, double range) {
+		List<Enemy> enemies = new ArrayList<>();
+		enemyGrid.query(x, y, range, enemies);
+		sortBySpawn(enemies);
+		return enemies.toArray(new Enemy[enemies.size()]);
 	}
 
-	private static void processProjectiles() {
-		Entity[] ents = entities.toArray(new Entity[entities.size()]);
-		Projectile[] projectiles = GameLogic.projectiles.toArray(new Projectile[GameLogic.projectiles.size()]);
-		for (Projectile p : projectiles) {
+	/**
+	 * <ul>
+	 * <li><b><i>sortBySpawn</i></b><br>
+	 * <br>
+	 * {@code private static void sortBySpawn(List<Enemy> enemies)}<br>
+	 * <br>
+	 * Puts the given enemies in the order they were created. This is a heap sort done in place with {@link List#set(int, Object)}, because
+	 * {@link List#sort(java.util.Comparator)} allocates a buffer for lists of more than a few elements, and this is done for every projectile that hits an
+	 * area.<br>
+	 * @param enemies The enemies to sort, which must all have different {@link Enemy#uid uids}
+	 *        </ul>
+	 */
+	private static void sortBySpawn(List<Enemy> enemies) {
+		int size = enemies.size();
+
+		for (int i = size / 2 - 1; i >= 0; i--)
+			siftDown(enemies, i, size);
+
+		for (int end = size - 1; end > 0; end--) {
+			Enemy last = enemies.get(end);
+			enemies.set(end, enemies.get(0));
+			enemies.set(0, last);
+			siftDown(enemies, 0, end);
+		}
+	}
+
+	private static void siftDown(List<Enemy> enemies, int i, int size) {
+		Enemy e = enemies.get(i);
+
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && enemies.get(child + 1).uid > enemies.get(child).uid) child++;
+			if (enemies.get(child).uid <= e.uid) break;
+
+			enemies.set(i, enemies.get(child));
+			i = child;
+		}
+
+		enemies.set(i, e);
+	}
+
+	static void processProjectiles() {
+		for (int i = 0, length = projectiles.length(); i < length; i++) {
+			Projectile p = projectiles.get(i);
+
 			if (p.getDeathTime() >= 0) {
-				if (!p.fade()) GameLogic.projectiles.remove(p);
+				if (!p.fade()) projectilePool.release(projectiles.remove(i));
 				continue;
 			}
 
 			if (!p.move()) { // The projectile is "dead"
 				p.fade();
 
-				if (p.type.delivery == DeliveryType.SINGLE_TARGET) {
-					if (p.type.follow && p.getTarget() instanceof Enemy) {
+				if (p.getType().delivery == DeliveryType.SINGLE_TARGET) {
+					if (p.getType().follow && p.getTarget() instanceof Enemy) {
 						if (((Enemy) p.getTarget()).damage(p)) money += ((Enemy) p.getTarget()).type.reward;
 					}
 
-					if (p.type.explodeRadius > 0.00001) {
-						for (Entity e : ents) {
-							if (!(e instanceof Enemy) || (p.type.follow && p.getTarget() == e)) continue;
-
-							if (distanceSq(e.getX(), p.getX(), e.getY(), p.getY()) <= p.type.explodeRadius * p.type.explodeRadius) {
-								if (((Enemy) e).damage(p)) money += ((Enemy) e).type.reward;
-							}
-						}
-					}
+					if (p.getType().explodeRadius > 0.00001) explode(p, p.getType().follow ? p.getTarget() : null);
 				}
 			}
 
-			if (p.type.delivery != DeliveryType.SINGLE_TARGET) {
-				for (Entity e : ents) {
-					if (!(e instanceof Enemy)) continue;
+			if (p.getType().delivery != DeliveryType.SINGLE_TARGET) {
+				// Lines and sectors never reach past the radius, so the grid finds every enemy they could hit, and the checks below only have to look at those
+				enemyGrid.query(p.getX(), p.getY(), p.getRadius(), nearby);
+				sortBySpawn(nearby);
 
-					if (distanceSq(e.getX(), p.getX(), e.getY(), p.getY()) > p.getRadius() * p.getRadius()) continue;
+				for (int j = 0; j < nearby.size(); j++) {
+					Enemy e = nearby.get(j);
 
 					boolean damage = false;
 
 					if (p.getHitTargets().contains(e)) continue;
 
-					switch (p.type.delivery) {
+					switch (p.getType().delivery) {
 						case AREA:
 							damage = true;
 							break;
@@ -461,43 +748,52 @@ public class GameLogic implements ActionListener {
 					}
 
 					if (damage) {
-						if (((Enemy) e).damage(p)) money += ((Enemy) e).type.reward;
-						p.hitTarget((Enemy) e);
+						if (e.damage(p)) money += e.type.reward;
+						p.hitTarget(e);
 					}
 				}
-			} else if (!p.type.follow) {
-				Optional<Entity> oe = Arrays.stream(ents).filter(e -> e instanceof Enemy && e.getRectangle().contains(p.getX(), p.getY())).sorted(new Comparator<Entity>() {
-
-					@Override
-					public int compare(Entity o1, Entity o2) {
-						int i = Double.compare(distanceSq(o1.getX(), p.getX(), o1.getY(), p.getY()), distanceSq(o2.getX(), p.getX(), o2.getY(), p.getY()));
+			} else if (!p.getType().follow) {
+				Enemy en = enemyGrid.nearestContaining(p.getX(), p.getY());
 
-						if (i == 0) return Integer.compare(o1.hashCode(), o2.hashCode());
-
-						return i;
-					}
-				}).findFirst();
-
-				if (oe.isPresent() && oe.get() instanceof Enemy) {
-					Enemy en = (Enemy) oe.get();
+				if (en != null) {
 
 					if (en.damage(p)) money += en.type.reward;
 					p.hitTarget(en);
 
-					if (p.type.explodeRadius > 0.00001) {
-						for (Entity e : ents) {
-							if (!(e instanceof Enemy) || (en == e)) continue;
-
-							if (distanceSq(e.getX(), p.getX(), e.getY(), p.getY()) <= p.type.explodeRadius * p.type.explodeRadius) {
-								if (((Enemy) e).damage(p)) money += ((Enemy) e).type.reward;
-							}
-						}
-					}
+					if (p.getType().explodeRadius > 0.00001) explode(p, en);
 				}
 			}
 		}
-		
-		InfoPanel.updateMoney();
+
+		projectiles.compact();
+
+		for (GameListener l : listeners)
+			l.statsChanged();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>explode</i></b><br>
+	 * <br>
+	 * {@code static void explode(Projectile p, Entity hit)}<br>
+	 * <br>
+	 * Damages every enemy within the explosion radius of the given projectile, in the order they were created. The enemies are found with the enemy grid, which
+	 * leaves out the ones outside the radius by their squared distance, and collected into a list that is reused between explosions. Hitting an enemy again
+	 * reuses its effect from this projectile instead of creating a new one, so once the list is large enough an explosion creates no objects.<br>
+	 * @param p The projectile that exploded
+	 * @param hit The entity that the projectile hit directly, which has already been damaged, or <code>null</code>
+	 *        </ul>
+	 */
+	static void explode(Projectile p, Entity hit) {
+		enemyGrid.query(p.getX(), p.getY(), p.getType().explodeRadius, nearby);
+		sortBySpawn(nearby);
+
+		for (int i = 0; i < nearby.size(); i++) {
+			Enemy e = nearby.get(i);
+			if (e == hit) continue;
+
+			if (e.damage(p)) money += e.type.reward;
+		}
 	}
 
 	private static boolean lineCollides(Entity e, Projectile p, double radius) {
@@ -527,8 +823,8 @@ public class GameLogic implements ActionListener {
 
 		double ta = Math.atan2(e.getY() - p.getY(), e.getX() - p.getX());
 
-		double ta1 = p.getRotation() - p.type.angle * 0.5;
-		double ta2 = p.getRotation() + p.type.angle * 0.5;
+		double ta1 = p.getRotation() - p.getType().angle * 0.5;
+		double ta2 = p.getRotation() + p.getType().angle * 0.5;
 
 		ta = (PI2 + ta) % PI2;
 		ta1 = (PI2 + ta1) % PI2;
@@ -551,24 +847,29 @@ public class GameLogic implements ActionListener {
 	 */
 	public static void buyObject(Purchasable type) {
 		if (type instanceof Upgrade) {
+			if (recording != null && selected != null) recording.record(frame, "upgrade", "id", ((Upgrade) type).id, "x", (int) selected.getX(), "y", (int) selected.getY());
+
 			if (selected instanceof Tower && type instanceof TowerUpgrade) ((Tower) selected).upgrade((TowerUpgrade) type);
 			
 			saved = false;
 			money -= type.getCost();
 			
 			setSelectedEntity(selected);
-			BuyPanel.setUpgrades(((Tower) selected).getType().upgrades);
-			GamePanel.repaintPanel();
-			BuyPanel.updateButtons();
-			InfoPanel.updateMoney();
+
+			for (GameListener l : listeners) {
+				l.entitiesChanged();
+				l.statsChanged();
+			}
 		} else {
 			wasPaused = !timer.isRunning();
 			if (pauseOnBuy) {
 				stop();
 			}
 			buying = type;
-			InfoPanel.setDisplayedObject(type);
 			selected = null;
+
+			for (GameListener l : listeners)
+				l.buyingChanged(type);
 		}
 	}
 
@@ -586,20 +887,23 @@ public class GameLogic implements ActionListener {
 	public static void buyObject(int x, int y) {
 		saved = false;
 
+		if (recording != null) recording.record(frame, "buy", "id", ((IdType) buying).id, "x", x, "y", y);
+
 		if (buying instanceof CollidableType) {
-			entities.add(buying instanceof ObstacleType ? new Obstacle((ObstacleType) buying, x, y) : new Tower((TowerType) buying, x, y));
+			CollidableEntity placed = buying instanceof ObstacleType ? new Obstacle((ObstacleType) buying, x, y) : new Tower((TowerType) buying, x, y);
+			entities.add(placed);
 
-			for (EnemyType type : EnemyType.values())
-				nodes.put(type, PathFinder.calculatePaths(type));
+			flowFields.repair(placed, true, getEntities());
 
-			Entity[] ents = entities.toArray(new Entity[entities.size()]);
-			for (Entity e : ents) {
-				if (!(e instanceof Enemy)) continue;
+			for (int i = 0; i < entities.enemies.length(); i++) {
+				Enemy e = entities.enemies.get(i);
+				if (e == null) continue;
 
-				((Enemy) e).resetNodes(nodes.get(((Enemy) e).type));
+				e.resetNodes(flowFields.get(e.type));
+				enemyGrid.update(e);
 			}
 
-			setSelectedEntity(entities.get(entities.size() - 1));
+			setSelectedEntity(placed);
 		} else if (buying instanceof InstantType) {
 			entities.add(new Instant((InstantType) buying, x, y));
 		}
@@ -608,40 +912,67 @@ public class GameLogic implements ActionListener {
 
 		buying = null;
 		if (!wasPaused) start();
-		GamePanel.repaintPanel();
-		BuyPanel.updateButtons();
-		InfoPanel.updateMoney();
+
+		for (GameListener l : listeners) {
+			l.entitiesChanged();
+			l.statsChanged();
+		}
 	}
 
 	public static void cancelBuy() {
 		buying = null;
 		if (!wasPaused) start();
-		InfoPanel.setDisplayedObject(null);
-		GamePanel.repaintPanel();
+
+		for (GameListener l : listeners)
+			l.buyingChanged(null);
 	}
 
 	public static void sell(CollidableEntity entity) {
-		if (entity != null && entities.contains(entity)) {
-			entities.remove(entity);
+		if (entities.remove(entity)) {
+			if (recording != null) recording.record(frame, "sell", "x", (int) entity.getX(), "y", (int) entity.getY());
+
 			money += entity.getType().sellCost;
 			if (entity == selected) setSelectedEntity(null);
 
-			for (EnemyType type : EnemyType.values())
-				nodes.put(type, PathFinder.calculatePaths(type));
+			flowFields.repair(entity, false, getEntities());
 
-			Entity[] ents = entities.toArray(new Entity[entities.size()]);
-			for (Entity e : ents) {
-				if (!(e instanceof Enemy)) continue;
+			for (int i = 0; i < entities.enemies.length(); i++) {
+				Enemy e = entities.enemies.get(i);
+				if (e == null) continue;
 
-				((Enemy) e).resetNodes(nodes.get(((Enemy) e).type));
+				e.resetNodes(flowFields.get(e.type));
+				enemyGrid.update(e);
 			}
 
-			GamePanel.repaintPanel();
-			BuyPanel.updateButtons();
-			InfoPanel.updateMoney();
+			for (GameListener l : listeners) {
+				l.entitiesChanged();
+				l.statsChanged();
+			}
 		}
 	}
 
+	/**
+	 * <ul>
+	 * <li><b><i>setTargetType</i></b><br>
+	 * <br>
+	 * {@code public static void setTargetType(Gun gun, TargetType targetType)}<br>
+	 * <br>
+	 * Changes which enemies the given gun aims at. Players should change the target type through this method, so that it is recorded in replays.<br>
+	 * @param gun The gun of a tower
+	 * @param targetType The new target type
+	 *        </ul>
+	 */
+	public static void setTargetType(Gun gun, TargetType targetType) {
+		if (recording != null) {
+			for (int i = 0; i < entities.weapons.length(); i++) {
+				Weapon w = entities.weapons.get(i);
+				if (w instanceof Tower && w.getGun() == gun) recording.record(frame, "target", "target", targetType.name().toLowerCase(), "x", (int) ((Tower) w).getX(), "y", (int) ((Tower) w).getY());
+			}
+		}
+
+		gun.setTargetType(targetType);
+	}
+
 	public static boolean pausesOnBuy() {
 		return pauseOnBuy;
 	}
@@ -650,6 +981,102 @@ public class GameLogic implements ActionListener {
 		GameLogic.pauseOnBuy = pauseOnBuy;
 	}
 
+	/**
+	 * <ul>
+	 * <li><b><i>setRecordReplays</i></b><br>
+	 * <br>
+	 * {@code public static void setRecordReplays(boolean record)}<br>
+	 * <br>
+	 * Sets whether the commands of the player are recorded, so that games can be played again with {@link Replay}. Recording starts with the next new game,
+	 * and the replay is written to {@link #REPLAY_DIRECTORY} with each autosave, when the game is lost or won, and when another game replaces it. Games that
+	 * were opened from a file are not recorded.<br>
+	 * @param record Whether to record replays
+	 *        </ul>
+	 */
+	public static void setRecordReplays(boolean record) {
+		recordReplays = record;
+		if (!record) recording = null;
+	}
+
+	public static boolean isRecordingReplays() {
+		return recordReplays;
+	}
+
+	/**
+	 * Writes the replay that is being recorded, if there is one, in the background
+	 */
+	private static void writeReplay() {
+		if (recording == null) return;
+
+		Replay replay = recording.end(frame, checksum());
+		Path path = REPLAY_DIRECTORY.resolve(String.format("%016x.json", replay.seed));
+		autosaver.submit(() -> {
+			try {
+				replay.write(path);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		});
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getFrame</i></b><br>
+	 * <br>
+	 * {@code public static int getFrame()}<br>
+	 * <br>
+	 * @return The number of frames that have been run since the game was reset
+	 *         </ul>
+	 */
+	public static int getFrame() {
+		return frame;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>checksum</i></b><br>
+	 * <br>
+	 * {@code public static long checksum()}<br>
+	 * <br>
+	 * @return A hash of the stats of the player and of the position, health and statistics of every entity and projectile, which is the same for games that
+	 *         have been played the same way
+	 *         </ul>
+	 */
+	public static long checksum() {
+		long h = 17;
+		h = 31 * h + money;
+		h = 31 * h + Double.doubleToLongBits(health);
+		h = 31 * h + levelIndex;
+		h = 31 * h + enemyIndex;
+		h = 31 * h + state.ordinal();
+
+		for (int i = 0; i < entities.all.length(); i++) {
+			Entity e = entities.all.get(i);
+			if (e == null) continue;
+
+			h = 31 * h + e.getType().id.hashCode();
+			h = 31 * h + Double.doubleToLongBits(e.getX());
+			h = 31 * h + Double.doubleToLongBits(e.getY());
+			if (e instanceof Enemy) h = 31 * h + Double.doubleToLongBits(((Enemy) e).getHealth());
+			if (e instanceof Weapon && ((Weapon) e).getGun() != null) {
+				Gun g = ((Weapon) e).getGun();
+				h = 31 * h + g.getKills();
+				h = 31 * h + Double.doubleToLongBits(g.getDamageDone());
+				h = 31 * h + g.getProjectilesFired();
+			}
+		}
+
+		for (int i = 0; i < projectiles.length(); i++) {
+			Projectile p = projectiles.get(i);
+			if (p == null) continue;
+
+			h = 31 * h + Double.doubleToLongBits(p.getX());
+			h = 31 * h + Double.doubleToLongBits(p.getY());
+		}
+
+		return h;
+	}
+
 	public static Entity getSelectedEntity() {
 		return selected;
 	}
@@ -657,12 +1084,8 @@ public class GameLogic implements ActionListener {
 	public static void setSelectedEntity(Entity selected) {
 		GameLogic.selected = selected;
 
-		InfoPanel.setDisplayedObject(selected);
-		if (selected instanceof Tower) {
-			BuyPanel.setUpgrades(((Tower) selected).getType().upgrades);
-		} else {
-			BuyPanel.setUpgrades();
-		}
+		for (GameListener l : listeners)
+			l.selectionChanged(selected);
 	}
 
 	public static boolean canPlaceObject(Purchasable pType, int x, int y) {
@@ -673,11 +1096,9 @@ public class GameLogic implements ActionListener {
 			for (Node goal : currentWorld.goals)
 				if (goal.x >= x && goal.x - x - (goal.top ? 0 : 1) < type.width && goal.y >= y && goal.y - y - (goal.top ? 1 : 0) < type.height) return false;
 
-			Entity[] ents = entities.toArray(new Entity[entities.size()]);
-			for (Entity e : ents) {
-				if (!(e instanceof CollidableEntity)) continue;
-
-				if (((CollidableEntity) e).getRectangle().intersects(x, y, type.width, type.height)) return false;
+			for (int i = 0; i < entities.collidables.length(); i++) {
+				CollidableEntity e = entities.collidables.get(i);
+				if (e != null && e.getRectangle().intersects(x, y, type.width, type.height)) return false;
 			}
 
 			if (type instanceof TowerType) {
@@ -714,8 +1135,8 @@ public class GameLogic implements ActionListener {
 		return currentWorld;
 	}
 
-	public static Node[][][] getNodes(EnemyType type) {
-		return nodes.get(type);
+	public static FlowField getNodes(EnemyType type) {
+		return flowFields.get(type);
 	}
 
 	public static int getMoney() {
@@ -731,11 +1152,25 @@ public class GameLogic implements ActionListener {
 	}
 
 	public static Entity[] getEntities() {
-		return entities.toArray(new Entity[entities.size()]);
+		return entities.all.toArray(Entity[]::new);
 	}
 
 	public static Projectile[] getProjectiles() {
-		return projectiles.toArray(new Projectile[projectiles.size()]);
+		return projectiles.toArray();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getProjectileView</i></b><br>
+	 * <br>
+	 * {@code public static Projectile[] getProjectileView()}<br>
+	 * <br>
+	 * @return The projectiles as of the end of the last frame, followed by <code>null</code>s, without copying them. Only safe to read on the thread that runs
+	 *         the frames, between frames. See {@link ProjectileBuffer#view()}.
+	 *         </ul>
+	 */
+	public static Projectile[] getProjectileView() {
+		return projectiles.view();
 	}
 
 	public static Purchasable getBuyingType() {
@@ -785,99 +1220,364 @@ public class GameLogic implements ActionListener {
 		return false;
 	}
 
+	/**
+	 * <ul>
+	 * <li><b><i>save</i></b><br>
+	 * <br>
+	 * {@code public static synchronized void save(Path path)}<br>
+	 * <br>
+	 * Saves the current game to the given file in the binary format of {@link SaveOutputStream}. See {@link #write(SaveOutputStream, SavedGame)} for the
+	 * layout.<br>
+	 * @param path The file to save to
+	 *        </ul>
+	 */
 	public static synchronized void save(Path path) {
 		lastSaveLocation = path;
 
-		HashMap<String, Object> map = new HashMap<>();
-		map.put("money", money);
-		map.put("health", health);
-		map.put("world", currentWorld.id);
-		map.put("level", currentLevelSet.id);
-		map.put("enemy-index", enemyIndex);
-		map.put("time-to-next", timeToNextEnemy);
-		map.put("state", state.name().toLowerCase());
-
-		LinkedHashMap<Entity, HashMap<String, Object>> entityMap = new LinkedHashMap<>();
-		for (Entity e : entities) {
-			HashMap<String, Object> ejson = new HashMap<>();
-			ejson.put("x", e.getX());
-			ejson.put("y", e.getY());
-			ejson.put("id", e.getType().id);
+		try {
+			write(path, capture());
+		} catch (IOException e) {
+			e.printStackTrace();
+			for (GameListener l : listeners)
+				l.saveFailed(path, e);
+		}
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getAutosaveInterval</i></b><br>
+	 * <br>
+	 * {@code public static int getAutosaveInterval()}<br>
+	 * <br>
+	 * @return The number of seconds of game time between autosaves, or 0 if the game is not autosaved.
+	 *         </ul>
+	 */
+	public static int getAutosaveInterval() {
+		return autosaveInterval;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>setAutosaveInterval</i></b><br>
+	 * <br>
+	 * {@code public static void setAutosaveInterval(int seconds)}<br>
+	 * <br>
+	 * Sets how often the game is saved to {@link #AUTOSAVE_PATH} while it is running. Only the snapshot of the game is taken between frames; it is written to
+	 * the file in the background.<br>
+	 * @param seconds The number of seconds of game time between autosaves, or 0 to turn autosaving off
+	 *        </ul>
+	 */
+	public static void setAutosaveInterval(int seconds) {
+		autosaveInterval = Math.max(0, seconds);
+		framesToAutosave = autosaveInterval * FRAME_RATE;
+	}
+
+	/**
+	 * Takes a snapshot of the game and writes it to {@link #AUTOSAVE_PATH} in the background. If the last autosave has not been written yet, this one is
+	 * skipped.
+	 */
+	private static void autosave() {
+		framesToAutosave = autosaveInterval * FRAME_RATE;
+		if (lastAutosave != null && !lastAutosave.isDone()) return;
+
+		SavedGame game = capture();
+		lastAutosave = autosaver.submit(() -> {
+			try {
+				write(AUTOSAVE_PATH, game);
+			} catch (IOException e) {
+				e.printStackTrace();
+				for (GameListener l : listeners)
+					l.saveFailed(AUTOSAVE_PATH, e);
+			}
+		});
+
+		writeReplay();
+	}
+
+	/**
+	 * Copies everything that is saved about the current game, so that it can be written while the game goes on. Entities are referred to by their
+	 * {@link Entity#uid uid}, or <code>-1</code> if there is none.
+	 */
+	private static SavedGame capture() {
+		List<SavedEntity> ents = new ArrayList<>(entities.all.size());
+		List<SavedEffect> effects = new ArrayList<>();
+
+		for (Entity e : getEntities()) {
 			if (e instanceof Enemy) {
-				ejson.put("type", "enemy");
-				ejson.put("health", ((Enemy) e).getHealth());
-				ejson.put("death-time", ((Enemy) e).getDeathTime());
-				ejson.put("next-node", ((Enemy) e).getNextNode());
-				ejson.put("prev-node", ((Enemy) e).getPrevNode());
-				List<HashMap<String, Object>> effects = new ArrayList<>();
-				for (StatusEffect effect : ((Enemy) e).getStatusEffects()) {
-					HashMap<String, Object> ef = new HashMap<>();
-					ef.put("type", effect.type.name().toLowerCase());
-					ef.put("amplifier", effect.amplifier);
-					ef.put("duration", effect.getDuration());
-					ef.put("orig-duration", effect.origDuration);
-					ef.put("inflictor", entities.indexOf(effect.inflictor));
-					effects.add(ef);
-				}
-				ejson.put("effects", effects);
-			} else if (e instanceof Obstacle) {
-				ejson.put("type", "obstacle");
+				Enemy enemy = (Enemy) e;
+				ents.add(new SavedEntity(enemy.uid, enemy.getType().id, enemy.getX(), enemy.getY(), enemy.getHealth(), enemy.getDeathTime(), enemy.getNextIndex(), enemy.getPrevIndex()));
+
+				for (StatusEffect effect : enemy.getStatusEffects())
+					effects.add(new SavedEffect(effect.getType(), effect.getDuration(), effect.getAmplifier(), effect.getOrigDuration(), effect.getInflictor() instanceof Entity ? ((Entity) effect.getInflictor()).uid : -1, enemy.uid));
 			} else if (e instanceof Tower) {
-				ejson.put("type", "tower");
+				Gun g = ((Tower) e).getGun();
+				ents.add(new SavedEntity(e.uid, e.getType().id, e.getX(), e.getY(), g.getTargetType(), g.getKills(), g.getDamageDone(), g.getProjectilesFired()));
+			} else if (e instanceof Obstacle) {
+				ents.add(new SavedEntity(e.uid, "obstacle", e.getType().id, e.getX(), e.getY()));
+			} else {
+				ents.add(null);
 			}
+		}
+
+		List<SavedProjectile> projs = new ArrayList<>(projectiles.size());
+		for (int i = 0; i < projectiles.length(); i++) {
+			Projectile p = projectiles.get(i);
+			if (p == null || !(p.getShootingEntity() instanceof Entity)) continue;
+
+			List<Enemy> hitTargets = p.getHitTargets();
+			int[] hits = new int[hitTargets.size()];
+			for (int h = 0; h < hits.length; h++)
+				hits[h] = hitTargets.get(h).uid;
+
+			projs.add(new SavedProjectile(((Entity) p.getShootingEntity()).uid, Arrays.asList(p.getShootingEntity().getGun().projectiles).indexOf(p.getType()), p.getX(), p.getY(), p.getStartX(), p.getStartY(), p.getTargetX(), p.getTargetY(), p.getRotation(), p.getDeathTime(), p.getRadius(), p.getTarget() == null ? -1 : p.getTarget().uid, hits));
+		}
+
+		return new SavedGame(currentLevelSet, currentWorld, random.getSeed(), money, health, enemyIndex, timeToNextEnemy, state, ents, projs, effects);
+	}
+
+	/**
+	 * Writes the given game to a temporary file next to <code>path</code>, and then moves it over <code>path</code>, so that an interrupted save never leaves
+	 * a half written file behind.
+	 */
+	private static void write(Path path, SavedGame game) throws IOException {
+		Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (SaveOutputStream out = new SaveOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				write(out, game);
+			}
+
+			try {
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
 
-			if (e instanceof Weapon) {
-				if (((Weapon) e).getGun() != null && e instanceof Tower) {
-					Gun g = ((Weapon) e).getGun();
-					ejson.put("target-type", g.getTargetType().name().toLowerCase());
-					ejson.put("kills", g.getKills());
-					ejson.put("damage-done", g.getDamageDone());
-					ejson.put("projectiles-fired", g.getProjectilesFired());
+	/**
+	 * Writes the given game after the header of a saved game. Entities that could not be saved are written as an empty type, and the status effects of each
+	 * enemy are written with it. Every entity is written with its {@link Entity#uid uid}, and other entities refer to it by that instead of by its index.
+	 */
+	private static void write(SaveOutputStream out, SavedGame game) throws IOException {
+		out.writeString(game.world.id);
+		out.writeString(game.levelSet.id);
+		out.writeInt(game.money);
+		out.writeDouble(game.health);
+		out.writeVarInt(game.enemyIndex);
+		out.writeDouble(game.timeToNextEnemy);
+		out.writeString(game.state.name().toLowerCase());
+		out.writeLong(game.seed);
+
+		out.writeVarInt(game.entities.size());
+		int effect = 0;
+		for (SavedEntity e : game.entities) {
+			if (e == null) {
+				out.writeString("");
+				continue;
+			}
+
+			out.writeString(e.kind);
+			out.writeVarInt(e.uid);
+			out.writeString(e.id);
+			out.writeDouble(e.x);
+			out.writeDouble(e.y);
+
+			if (e.kind.equals("enemy")) {
+				out.writeDouble(e.health);
+				out.writeDouble(e.deathTime);
+				out.writeIndex(e.nextNode);
+				out.writeIndex(e.prevNode);
+
+				// The effects are in the same order as the enemies that they affect
+				int first = effect;
+				while (effect < game.effects.size() && game.effects.get(effect).affected == e.uid)
+					effect++;
+
+				out.writeVarInt(effect - first);
+				for (SavedEffect ef : game.effects.subList(first, effect)) {
+					out.writeString(ef.type.name().toLowerCase());
+					out.writeDouble(ef.amplifier);
+					out.writeDouble(ef.duration);
+					out.writeDouble(ef.origDuration);
+					out.writeIndex(ef.inflictor);
+				}
+			} else if (e.kind.equals("tower")) {
+				out.writeBoolean(e.targetType != null);
+				if (e.targetType != null) {
+					out.writeString(e.targetType.name().toLowerCase());
+					out.writeVarInt(e.kills);
+					out.writeDouble(e.damageDone);
+					out.writeVarInt(e.projectilesFired);
 				}
-				ejson.put("projectiles", new ArrayList<HashMap<String, Object>>());
 			}
-			entityMap.put(e, ejson);
 		}
 
-		for (Projectile p : projectiles) {
-			HashMap<String, Object> pmap = new HashMap<>();
-			pmap.put("x", p.getX());
-			pmap.put("y", p.getY());
-			pmap.put("start-x", p.startX);
-			pmap.put("start-y", p.startY);
-			pmap.put("target-x", p.targetX);
-			pmap.put("target-y", p.targetY);
-			pmap.put("rotation", p.getRotation());
-			pmap.put("radius", p.getRadius());
-			pmap.put("death-time", p.getDeathTime());
-			pmap.put("type", Arrays.asList(p.shootingEntity.getGun().projectiles).indexOf(p.type));
-			pmap.put("target", entities.indexOf(p.getTarget()));
-			List<Integer> hitTargets = new ArrayList<>();
-			p.getHitTargets().stream().mapToInt(e -> entities.indexOf(e)).sorted().forEachOrdered(hitTargets::add);
-			pmap.put("hit-targets", hitTargets);
-			List<Object> projectiles = new ArrayList<>();
-			projectiles.addAll((List<?>) entityMap.get(p.shootingEntity).get("projectiles"));
-			projectiles.add(pmap);
-			entityMap.get(p.shootingEntity).put("projectiles", projectiles);
+		out.writeVarInt(game.projectiles.size());
+		for (SavedProjectile p : game.projectiles) {
+			out.writeIndex(p.shooter);
+			out.writeIndex(p.typeIndex);
+			out.writeDouble(p.x);
+			out.writeDouble(p.y);
+			out.writeDouble(p.startX);
+			out.writeDouble(p.startY);
+			out.writeDouble(p.targetX);
+			out.writeDouble(p.targetY);
+			out.writeDouble(p.rotation);
+			out.writeDouble(p.radius);
+			out.writeDouble(p.deathTime);
+			out.writeIndex(p.target);
+
+			out.writeVarInt(p.hitTargets.length);
+			for (int hit : p.hitTargets)
+				out.writeIndex(hit);
 		}
+	}
 
-		map.put("entities", entityMap.values());
+	/**
+	 * <ul>
+	 * <li><b><i>open</i></b><br>
+	 * <br>
+	 * {@code public static synchronized void open(Path path) throws IOException}<br>
+	 * <br>
+	 * Opens a game saved by {@link #save(Path)}. Games saved in the old, obfuscated JSON format can be opened too.<br>
+	 * @param path The file to open
+	 * @throws IOException If the file cannot be read or is not a saved game
+	 *         </ul>
+	 */
+	public static synchronized void open(Path path) throws IOException {
+		SavedGame game;
+		try (BufferedInputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+			if (SaveInputStream.isSave(in)) {
+				game = read(new SaveInputStream(in));
+			} else {
+				game = readJSON(new InputStreamReader(new ObfuscatedInputStream(in), StandardCharsets.UTF_8));
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e);
+		}
 
-		String obf = obfuscate(JSON.writeJSON(map));
-		try {
-			Files.write(path, obf.getBytes(StandardCharsets.UTF_8));
-		} catch (IOException e) {}
+		load(game);
 	}
 
-	public static synchronized void open(Path path) throws IOException {
-		List<?> json;
+	/**
+	 * Reads a game written by {@link #write(SaveOutputStream, SavedGame)}.
+	 */
+	private static SavedGame read(SaveInputStream in) throws IOException {
+		World world = World.valueOf(in.readString());
+		if (world == null) world = World.values()[0];
+
+		LevelSet levelSet = LevelSet.valueOf(in.readString());
+		if (levelSet == null) levelSet = LevelSet.values()[0];
+
+		int money = in.readInt();
+		double gameHealth = in.readDouble();
+		int enemyIndex = in.readVarInt();
+		double timeToNextEnemy = in.readDouble();
+		State state;
 		try {
-			json = JSON.parseJSON(deobfuscate(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)));
-		} catch (NumberFormatException e) {
-			throw new IOException();
+			state = State.valueOf(in.readString().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			state = State.PLAYING;
+		}
+		long seed = in.readLong();
+
+		List<SavedEntity> ents = new ArrayList<>();
+		List<SavedProjectile> savedProjectiles = new ArrayList<>();
+		List<SavedEffect> savedEffects = new ArrayList<>();
+
+		int entityCount = in.readVarInt();
+		for (int i = 0; i < entityCount; i++) {
+			String typeStr = in.readString();
+			if (typeStr.isEmpty()) {
+				ents.add(null);
+				continue;
+			}
+
+			int uid = in.readVarInt();
+			String id = in.readString();
+			double x = in.readDouble();
+			double y = in.readDouble();
+
+			if (typeStr.equals("enemy")) {
+				double health = in.readDouble();
+				double deathTime = in.readDouble();
+				int nextNode = in.readIndex();
+				int prevNode = in.readIndex();
+
+				ents.add(new SavedEntity(uid, id, x, y, health, deathTime, nextNode, prevNode));
+
+				int effectCount = in.readVarInt();
+				for (int j = 0; j < effectCount; j++) {
+					String efName = in.readString();
+					double amplifier = in.readDouble();
+					double duration = in.readDouble();
+					double origDuration = in.readDouble();
+					int inflictor = in.readIndex();
+					if (duration <= 0 || amplifier <= 0 || inflictor < 0) continue;
+
+					try {
+						savedEffects.add(new SavedEffect(StatusEffectType.valueOf(efName.toUpperCase()), duration, amplifier, origDuration, inflictor, uid));
+					} catch (IllegalArgumentException e) {}
+				}
+			} else if (typeStr.equals("tower")) {
+				if (in.readBoolean()) {
+					TargetType targetType;
+					try {
+						targetType = TargetType.valueOf(in.readString().toUpperCase());
+					} catch (IllegalArgumentException e) {
+						targetType = TargetType.FIRST;
+					}
+					int kills = in.readVarInt();
+					double damageDone = in.readDouble();
+					int projectilesFired = in.readVarInt();
+
+					ents.add(new SavedEntity(uid, id, x, y, targetType, kills, damageDone, projectilesFired));
+				} else {
+					ents.add(new SavedEntity(uid, typeStr, id, x, y));
+				}
+			} else if (typeStr.equals("obstacle")) {
+				ents.add(new SavedEntity(uid, typeStr, id, x, y));
+			} else {
+				throw new IOException("Unknown entity type " + typeStr);
+			}
 		}
 
-		if (!(json.get(0) instanceof Map<?, ?>)) throw new IOException();
+		int projectileCount = in.readVarInt();
+		for (int i = 0; i < projectileCount; i++) {
+			int shooter = in.readIndex();
+			if (shooter < 0) continue;
+
+			int typeIndex = in.readIndex();
+			double x = in.readDouble();
+			double y = in.readDouble();
+			double startX = in.readDouble();
+			double startY = in.readDouble();
+			double targetX = in.readDouble();
+			double targetY = in.readDouble();
+			double rotation = in.readDouble();
+			double radius = in.readDouble();
+			double deathTime = in.readDouble();
+			int target = in.readIndex();
+			int[] hits = new int[in.readVarInt()];
+			for (int h = 0; h < hits.length; h++)
+				hits[h] = in.readIndex();
+
+			savedProjectiles.add(new SavedProjectile(shooter, typeIndex, x, y, startX, startY, targetX, targetY, rotation, deathTime, radius, target, hits));
+		}
+
+		return new SavedGame(levelSet, world, seed, money, gameHealth, enemyIndex, timeToNextEnemy, state, ents, savedProjectiles, savedEffects);
+	}
+
+	/**
+	 * Reads a game saved in the JSON format that was used before {@link SaveOutputStream}. Entities are referred to by their index in it.
+	 */
+	private static SavedGame readJSON(Reader in) throws IOException {
+		List<?> json = JSON.parseJSON(in);
+
+		if (json == null || json.isEmpty() || !(json.get(0) instanceof Map<?, ?>)) throw new IOException();
 
 		Map<?, ?> game = (Map<?, ?>) json.get(0);
 
@@ -898,7 +1598,7 @@ public class GameLogic implements ActionListener {
 			state = State.PLAYING;
 		}
 
-		List<Entity> ents = new ArrayList<>();
+		List<SavedEntity> ents = new ArrayList<>();
 
 		List<SavedProjectile> savedProjectiles = new ArrayList<>();
 		List<SavedEffect> savedEffects = new ArrayList<>();
@@ -909,17 +1609,18 @@ public class GameLogic implements ActionListener {
 			for (int i = 0; i < entities.size(); i++) {
 				Object o = entities.get(i);
 
-				if (!(o instanceof Map<?, ?>)) continue;
+				if (!(o instanceof Map<?, ?>)) {
+					ents.add(null);
+					continue;
+				}
 				Map<?, ?> e = (Map<?, ?>) o;
 
 				String id = String.format("%s", e.get("id"));
 				String typeStr = String.format("%s", e.get("type"));
-				if (typeStr.equals("tower")) {
-					TowerType type = TowerType.valueOf(id);
-					if (type == null) continue;
+				double x = e.get("x") instanceof Number ? ((Number) e.get("x")).doubleValue() : 0;
+				double y = e.get("y") instanceof Number ? ((Number) e.get("y")).doubleValue() : 0;
 
-					double x = e.get("x") instanceof Number ? ((Number) e.get("x")).doubleValue() : 0;
-					double y = e.get("y") instanceof Number ? ((Number) e.get("y")).doubleValue() : 0;
+				if (typeStr.equals("tower")) {
 					TargetType targetType = TargetType.FIRST;
 					try {
 						targetType = TargetType.valueOf(String.format("%s", e.get("target-type")).toUpperCase());
@@ -928,20 +1629,14 @@ public class GameLogic implements ActionListener {
 					double damageDone = e.get("damage-done") instanceof Number ? ((Number) e.get("damage-done")).doubleValue() : 0;
 					int projectilesFired = e.get("projectiles-fired") instanceof Number ? ((Number) e.get("projectiles-fired")).intValue() : 0;
 
-					ents.add(new Tower(type, x, y, targetType, kills, damageDone, projectilesFired));
+					ents.add(new SavedEntity(i, id, x, y, targetType, kills, damageDone, projectilesFired));
 
 					if (e.get("projectiles") instanceof List<?>) {
 						for (Object obj : (List<?>) e.get("projectiles")) {
-							if (!(obj instanceof Map<?, ?>)) continue;
+							if (!(obj instanceof Map<?, ?>) || !(((Map<?, ?>) obj).get("type") instanceof Number)) continue;
 							Map<?, ?> proj = (Map<?, ?>) obj;
 
-							ProjectileType ptype;
-							try {
-								ptype = type.projectiles[((Number) proj.get("type")).intValue()];
-							} catch (Exception exception) {
-								continue;
-							}
-
+							int typeIndex = ((Number) proj.get("type")).intValue();
 							double px = proj.get("x") instanceof Number ? ((Number) proj.get("x")).doubleValue() : 0;
 							double py = proj.get("y") instanceof Number ? ((Number) proj.get("y")).doubleValue() : 0;
 							double startX = proj.get("start-x") instanceof Number ? ((Number) proj.get("start-x")).doubleValue() : px;
@@ -960,15 +1655,10 @@ public class GameLogic implements ActionListener {
 							for (int h = 0; h < hits.length; h++) {
 								hits[h] = hitTargets.get(h);
 							}
-							savedProjectiles.add(new SavedProjectile(i, ptype, px, py, startX, startY, targetX, targetY, rotation, deathTime, radius, target, hits));
+							savedProjectiles.add(new SavedProjectile(i, typeIndex, px, py, startX, startY, targetX, targetY, rotation, deathTime, radius, target, hits));
 						}
 					}
 				} else if (typeStr.equals("enemy")) {
-					EnemyType type = EnemyType.valueOf(id);
-					if (type == null) continue;
-
-					double x = e.get("x") instanceof Number ? ((Number) e.get("x")).doubleValue() : 0;
-					double y = e.get("y") instanceof Number ? ((Number) e.get("y")).doubleValue() : 0;
 					double health = e.get("health") instanceof Number ? ((Number) e.get("health")).doubleValue() : 0;
 					double deathTime = e.get("death-time") instanceof Number ? ((Number) e.get("death-time")).doubleValue() : 0;
 
@@ -982,7 +1672,7 @@ public class GameLogic implements ActionListener {
 						if (next.get("y") instanceof Number) nextY = ((Number) next.get("y")).intValue();
 						if (next.get("top") instanceof Boolean) nextTop = (Boolean) next.get("top");
 					}
-					Node nextNode = new Node(nextX, nextY, nextTop);
+					int nextNode = e.get("next-node") instanceof Map<?, ?> ? FlowField.getIndex(world, new Node(nextX, nextY, nextTop)) : -1;
 
 					int prevX = 0;
 					int prevY = 0;
@@ -994,9 +1684,9 @@ public class GameLogic implements ActionListener {
 						if (prev.get("y") instanceof Number) prevY = ((Number) prev.get("y")).intValue();
 						if (prev.get("top") instanceof Boolean) prevTop = (Boolean) prev.get("top");
 					}
-					Node prevNode = new Node(prevX, prevY, prevTop);
+					int prevNode = FlowField.getIndex(world, new Node(prevX, prevY, prevTop));
 
-					ents.add(new Enemy(type, prevNode, nextNode, x, y, deathTime, health));
+					ents.add(new SavedEntity(i, id, x, y, health, deathTime, nextNode, prevNode));
 
 					if (e.get("effects") instanceof List<?>) {
 						List<?> effects = (List<?>) e.get("effects");
@@ -1023,61 +1713,184 @@ public class GameLogic implements ActionListener {
 						}
 					}
 				} else if (typeStr.equals("obstacle")) {
-					ObstacleType type = ObstacleType.valueOf(id);
-					if (type == null) continue;
-
-					double x = e.get("x") instanceof Number ? ((Number) e.get("x")).doubleValue() : 0;
-					double y = e.get("y") instanceof Number ? ((Number) e.get("y")).doubleValue() : 0;
-
-					ents.add(new Obstacle(type, x, y));
+					ents.add(new SavedEntity(i, typeStr, id, x, y));
+				} else {
+					ents.add(null);
 				}
 			}
 		}
 
+		return new SavedGame(levelSet, world, ThreadLocalRandom.current().nextLong(), money, gameHealth, enemyIndex, timeToNextEnemy, state, ents, savedProjectiles, savedEffects);
+	}
+
+	/**
+	 * Replaces the current game with the given saved one. Entities whose types no longer exist are left out. The game is reset before the entities are
+	 * created, so that they get their random numbers from the saved seed.
+	 */
+	private static void load(SavedGame game) {
+		recording = null;
+
+		clear(game.world, game.levelSet, game.seed);
+
+		List<Entity> ents = new ArrayList<>(game.entities.size());
+		HashMap<Integer, Entity> saved = new HashMap<>(2 * game.entities.size());
+		for (SavedEntity e : game.entities) {
+			Entity entity = e == null ? null : e.create();
+			if (entity == null) continue;
+
+			ents.add(entity);
+			saved.put(e.uid, entity);
+		}
+
 		List<Projectile> projectiles = new ArrayList<>();
 
-		for (SavedProjectile p : savedProjectiles) {
-			if (ents.get(p.shootingIndex) instanceof Weapon && ents.get(p.target) instanceof Enemy) {
-				List<Enemy> hitTargets = new ArrayList<>();
-				Arrays.stream(p.hitTargets).forEach(i -> {
-					if (ents.get(i) instanceof Enemy) hitTargets.add((Enemy) ents.get(i));
-				});
-				Enemy target = (Enemy) ents.get(p.target);
-				Projectile proj = new Projectile((Weapon) ents.get(p.shootingIndex), p.ptype, p.x, p.y, p.startX, p.startY, p.targetX, p.targetY, p.rotation, p.deathTime, p.radius, target, hitTargets);
-				projectiles.add(proj);
-				if (p.deathTime < 0) target.damageFuture(proj);
+		for (SavedProjectile p : game.projectiles) {
+			if (!(saved.get(p.shooter) instanceof Weapon) || !(saved.get(p.target) instanceof Enemy)) continue;
+
+			Weapon shooter = (Weapon) saved.get(p.shooter);
+			if (shooter.getGun() == null || p.typeIndex < 0 || p.typeIndex >= shooter.getGun().projectiles.length) continue;
+
+			List<Enemy> hitTargets = new ArrayList<>();
+			for (int hit : p.hitTargets) {
+				if (saved.get(hit) instanceof Enemy) hitTargets.add((Enemy) saved.get(hit));
 			}
+			Enemy target = (Enemy) saved.get(p.target);
+			Projectile proj = new Projectile(shooter, shooter.getGun().projectiles[p.typeIndex], p.x, p.y, p.startX, p.startY, p.targetX, p.targetY, p.rotation, p.deathTime, p.radius, target, hitTargets);
+			projectiles.add(proj);
+			if (p.deathTime < 0) target.damageFuture(proj);
+		}
+
+		GameLogic.enemyIndex = game.enemyIndex;
+		GameLogic.money = game.money;
+		GameLogic.health = game.health;
+		GameLogic.maxHealth = game.levelSet.health;
+		GameLogic.timeToNextEnemy = game.timeToNextEnemy;
+		GameLogic.state = game.state;
+		for (Entity e : ents)
+			GameLogic.entities.add(e);
+
+		// Enemies only hold effects once they are in the registry
+		for (SavedEffect e : game.effects) {
+			if (saved.get(e.affected) instanceof Enemy && saved.get(e.inflictor) instanceof Weapon) ((Enemy) saved.get(e.affected)).addStatusEffect(new StatusEffect(saved.get(e.inflictor), e.type, e.amplifier, e.duration, e.origDuration));
+		}
+
+		for (Projectile p : projectiles)
+			GameLogic.projectiles.add(p);
+		GameLogic.projectiles.publish();
+
+		flowFields.calculate(EnemyType.values(), getEntities(), game.world);
+
+		for (Enemy e : entities.enemies.toArray(Enemy[]::new)) {
+			e.resetNodes(flowFields.get(e.type));
+			enemyGrid.add(e);
+		}
+
+		for (GameListener l : listeners)
+			l.gameOpened();
+	}
+
+	/**
+	 * Everything that is saved about a game. It does not refer to any live objects, so it can be written on another thread.
+	 */
+	private static class SavedGame {
+
+		final LevelSet levelSet;
+		final World world;
+		final long seed;
+		final int money;
+		final double health;
+		final int enemyIndex;
+		final double timeToNextEnemy;
+		final State state;
+		final List<SavedEntity> entities;
+		final List<SavedProjectile> projectiles;
+		final List<SavedEffect> effects;
+
+		public SavedGame(LevelSet levelSet, World world, long seed, int money, double health, int enemyIndex, double timeToNextEnemy, State state, List<SavedEntity> entities, List<SavedProjectile> projectiles, List<SavedEffect> effects) {
+			this.levelSet = levelSet;
+			this.world = world;
+			this.seed = seed;
+			this.money = money;
+			this.health = health;
+			this.enemyIndex = enemyIndex;
+			this.timeToNextEnemy = timeToNextEnemy;
+			this.state = state;
+			this.entities = entities;
+			this.projectiles = projectiles;
+			this.effects = effects;
+		}
+	}
+
+	/**
+	 * Saved entities, effects and projectiles refer to each other by the {@link Entity#uid uid} that the entity had when it was saved
+	 */
+	private static class SavedEntity {
+
+		final int uid;
+
+		/**
+		 * <code>"tower"</code>, <code>"enemy"</code> or <code>"obstacle"</code>
+		 */
+		final String kind;
+		final String id;
+		final double x, y;
+
+		final double health, deathTime;
+		final int nextNode, prevNode;
+
+		/**
+		 * <code>null</code> if the tower's gun was not saved
+		 */
+		final TargetType targetType;
+		final int kills, projectilesFired;
+		final double damageDone;
+
+		public SavedEntity(int uid, String kind, String id, double x, double y) {
+			this(uid, kind, id, x, y, 0, 0, -1, -1, null, 0, 0, 0);
 		}
 
-		for (SavedEffect e : savedEffects) {
-			if (ents.get(e.affectedIndex) instanceof Enemy && ents.get(e.inflictorIndex) instanceof Weapon) ((Enemy) ents.get(e.affectedIndex)).addStatusEffect(new StatusEffect((Weapon) ents.get(e.inflictorIndex), e.type, e.amplifier, e.duration, e.origDuration));
+		public SavedEntity(int uid, String id, double x, double y, double health, double deathTime, int nextNode, int prevNode) {
+			this(uid, "enemy", id, x, y, health, deathTime, nextNode, prevNode, null, 0, 0, 0);
 		}
 
-		GameLogic.reset();
-		GameLogic.currentLevelSet = levelSet;
-		GameLogic.currentWorld = world;
-		GameLogic.enemyIndex = enemyIndex;
-		GameLogic.money = money;
-		GameLogic.health = gameHealth;
-		GameLogic.maxHealth = levelSet.health;
-		GameLogic.timeToNextEnemy = timeToNextEnemy;
-		GameLogic.state = state;
-		GameLogic.entities = new ArrayList<>(ents);
-		GameLogic.projectiles = new ArrayList<>(projectiles);
-
-		for (EnemyType type : EnemyType.values())
-			nodes.put(type, PathFinder.calculatePaths(type));
-
-		Entity[] entityArray = entities.toArray(new Entity[entities.size()]);
-		for (Entity e : entityArray) {
-			if (!(e instanceof Enemy)) continue;
-
-			((Enemy) e).resetNodes(nodes.get(((Enemy) e).type));
+		public SavedEntity(int uid, String id, double x, double y, TargetType targetType, int kills, double damageDone, int projectilesFired) {
+			this(uid, "tower", id, x, y, 0, 0, -1, -1, targetType, kills, damageDone, projectilesFired);
 		}
 
-		Window.repaintWindow();
-		InfoPanel.refreshDisplay();
-		BuyPanel.updateButtons();
+		private SavedEntity(int uid, String kind, String id, double x, double y, double health, double deathTime, int nextNode, int prevNode, TargetType targetType, int kills, double damageDone, int projectilesFired) {
+			this.uid = uid;
+			this.kind = kind;
+			this.id = id;
+			this.x = x;
+			this.y = y;
+			this.health = health;
+			this.deathTime = deathTime;
+			this.nextNode = nextNode;
+			this.prevNode = prevNode;
+			this.targetType = targetType;
+			this.kills = kills;
+			this.damageDone = damageDone;
+			this.projectilesFired = projectilesFired;
+		}
+
+		/**
+		 * @return A new entity with the saved values, or <code>null</code> if its type no longer exists.
+		 */
+		Entity create() {
+			switch (kind) {
+				case "enemy":
+					EnemyType enemyType = EnemyType.valueOf(id);
+					return enemyType == null ? null : new Enemy(enemyType, prevNode, nextNode, x, y, deathTime, health);
+				case "tower":
+					TowerType towerType = TowerType.valueOf(id);
+					return towerType == null ? null : new Tower(towerType, x, y, targetType == null ? TargetType.FIRST : targetType, kills, damageDone, projectilesFired);
+				case "obstacle":
+					ObstacleType obstacleType = ObstacleType.valueOf(id);
+					return obstacleType == null ? null : new Obstacle(obstacleType, x, y);
+				default:
+					return null;
+			}
+		}
 	}
 
 	private static class SavedEffect {
@@ -1086,32 +1899,36 @@ public class GameLogic implements ActionListener {
 		final double duration;
 		final double amplifier;
 		final double origDuration;
-		final int inflictorIndex;
-		final int affectedIndex;
+		final int inflictor;
+		final int affected;
 
-		public SavedEffect(StatusEffectType type, double duration, double amplifier, double origDuration, int inflictorIndex, int affectedIndex) {
+		public SavedEffect(StatusEffectType type, double duration, double amplifier, double origDuration, int inflictor, int affected) {
 			this.type = type;
 			this.duration = duration;
 			this.amplifier = amplifier;
 			this.origDuration = origDuration;
-			this.inflictorIndex = inflictorIndex;
-			this.affectedIndex = affectedIndex;
+			this.inflictor = inflictor;
+			this.affected = affected;
 		}
 	}
 
 	private static class SavedProjectile {
 
-		final int shootingIndex;
-		final ProjectileType ptype;
+		final int shooter;
+
+		/**
+		 * The index of the type in the projectiles of the shooting entity's gun
+		 */
+		final int typeIndex;
 		final double x, y, startX, startY, targetX, targetY, rotation;
 		final double deathTime;
 		final double radius;
 		final int target;
 		final int[] hitTargets;
 
-		public SavedProjectile(int shootingIndex, ProjectileType ptype, double x, double y, double startX, double startY, double targetX, double targetY, double rotation, double deathTime, double radius, int target, int[] hitTargets) {
-			this.shootingIndex = shootingIndex;
-			this.ptype = ptype;
+		public SavedProjectile(int shooter, int typeIndex, double x, double y, double startX, double startY, double targetX, double targetY, double rotation, double deathTime, double radius, int target, int[] hitTargets) {
+			this.shooter = shooter;
+			this.typeIndex = typeIndex;
 			this.x = x;
 			this.y = y;
 			this.startX = startX;
@@ -1126,31 +1943,4 @@ public class GameLogic implements ActionListener {
 		}
 	}
 
-	public static String obfuscate(String string) {
-		long seed = System.nanoTime() % 60466176;
-		Random random = new Random(seed);
-
-		String seedStr = Long.toString(seed, 36);
-		String ret = String.format("%s%s", "00000".substring(seedStr.length()), seedStr);
-
-		for (char c : string.toCharArray()) {
-			ret += (char) (random.nextInt(256) ^ (int) c);
-		}
-
-		return ret;
-	}
-
-	public static String deobfuscate(String string) {
-		long seed = Long.parseLong(string.substring(0, 5), 36);
-		Random random = new Random(seed);
-
-		String ret = "";
-
-		for (char c : string.substring(5).toCharArray()) {
-			ret += (char) (random.nextInt(256) ^ (int) c);
-		}
-
-		return ret;
-	}
-
 }
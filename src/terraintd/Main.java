@@ -2,12 +2,14 @@ package terraintd;
 
 import terraintd.types.TypeGenerator;
 import terraintd.window.Window;
+import terraintd.window.WindowUpdater;
 
 public class Main {
 
 	public static void main(String[] args) {
 		TypeGenerator.generateValues();
 
+		GameLogic.addListener(new WindowUpdater());
 		GameLogic.reset();
 
 		GameLogic.cfg.read();
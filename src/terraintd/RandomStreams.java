@@ -0,0 +1,69 @@
+package terraintd;
+
+import java.util.SplittableRandom;
+
+/**
+ * The random numbers of a game. They all come from one seed, which is saved with the game, but each part of the game draws from a stream of its own, so
+ * that how many numbers one part uses does not change the numbers that the others get.<br>
+ * <br>
+ * Entities that need random numbers get a stream of their own from {@link #split()} when they are created, which they can use on any thread. A game that is
+ * started with the same seed and played the same way always turns out the same.
+ */
+public class RandomStreams {
+
+	private long seed;
+	private SplittableRandom spawns, entities;
+
+	public RandomStreams(long seed) {
+		setSeed(seed);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>setSeed</i></b><br>
+	 * <br>
+	 * {@code public void setSeed(long seed)}<br>
+	 * <br>
+	 * Starts every stream over from the given seed.<br>
+	 * @param seed The seed
+	 *        </ul>
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+
+		SplittableRandom root = new SplittableRandom(seed);
+		this.spawns = root.split();
+		this.entities = root.split();
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>spawns</i></b><br>
+	 * <br>
+	 * {@code public SplittableRandom spawns()}<br>
+	 * <br>
+	 * @return The stream that picks the spawn point of each enemy
+	 *         </ul>
+	 */
+	public SplittableRandom spawns() {
+		return spawns;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>split</i></b><br>
+	 * <br>
+	 * {@code public SplittableRandom split()}<br>
+	 * <br>
+	 * @return A new stream for an entity. The streams that are returned depend only on the seed and on how many were returned before.
+	 *         </ul>
+	 */
+	public SplittableRandom split() {
+		return entities.split();
+	}
+
+}
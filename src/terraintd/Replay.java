@@ -0,0 +1,285 @@
+package terraintd;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import terraintd.GameLogic.State;
+import terraintd.files.JSON;
+import terraintd.object.CollidableEntity;
+import terraintd.object.Entity;
+import terraintd.object.Tower;
+import terraintd.types.InstantType;
+import terraintd.types.LevelSet;
+import terraintd.types.ObstacleType;
+import terraintd.types.Purchasable;
+import terraintd.types.TargetType;
+import terraintd.types.TowerType;
+import terraintd.types.TowerUpgrade;
+import terraintd.types.TypeGenerator;
+import terraintd.types.World;
+
+/**
+ * Everything that the player did in a game, with the frame in which it was done, and the seed that the game was started with. Since the game does not
+ * depend on anything else, playing the commands back in a new game with the same seed gives the same game again, which is checked against the
+ * {@link GameLogic#checksum() checksum} of the game when the recording ended.<br>
+ * <br>
+ * Usage: <code>Replay [-repeat n] replay.json...</code><br>
+ * <br>
+ * Plays each replay as fast as possible without a display, prints how long it took and whether it ended the same way, and exits with code 1 if any of them
+ * did not.<br>
+ * <br>
+ * Replays are written as JSON, as in
+ * <code>{"world": "...", "level-set": "...", "seed": "...", "frames": 0, "checksum": "...", "commands": [{"frame": 0, "command": "buy", ...}, ...]}</code>.
+ * The seed and checksum are written as strings, because JSON numbers cannot hold every <code>long</code>.
+ */
+public class Replay {
+
+	public final String world, levelSet;
+	public final long seed;
+
+	private final List<Map<String, Object>> commands;
+	private int frames;
+	private long checksum;
+
+	Replay(String world, String levelSet, long seed) {
+		this.world = world;
+		this.levelSet = levelSet;
+		this.seed = seed;
+		this.commands = new ArrayList<>();
+	}
+
+	private Replay(Replay replay, int frames, long checksum) {
+		this.world = replay.world;
+		this.levelSet = replay.levelSet;
+		this.seed = replay.seed;
+		this.commands = Collections.unmodifiableList(new ArrayList<>(replay.commands));
+		this.frames = frames;
+		this.checksum = checksum;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>record</i></b><br>
+	 * <br>
+	 * {@code void record(int frame, String command, Object... arguments)}<br>
+	 * <br>
+	 * Adds a command to the end of this replay.<br>
+	 * @param frame The number of frames that had been run when the command was given
+	 * @param command The name of the command
+	 * @param arguments The names and values of the arguments of the command, alternating
+	 *        </ul>
+	 */
+	void record(int frame, String command, Object... arguments) {
+		Map<String, Object> c = new LinkedHashMap<>();
+		c.put("frame", frame);
+		c.put("command", command);
+		for (int i = 0; i + 1 < arguments.length; i += 2)
+			c.put((String) arguments[i], arguments[i + 1]);
+
+		commands.add(c);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>end</i></b><br>
+	 * <br>
+	 * {@code Replay end(int frames, long checksum)}<br>
+	 * <br>
+	 * @param frames The number of frames that have been run
+	 * @param checksum The checksum of the game after those frames
+	 * @return A copy of this replay that ends now. Recording into this replay can go on, and the copy can be written on another thread.
+	 *         </ul>
+	 */
+	Replay end(int frames, long checksum) {
+		return new Replay(this, frames, checksum);
+	}
+
+	public int getFrames() {
+		return frames;
+	}
+
+	public long getChecksum() {
+		return checksum;
+	}
+
+	public int getCommandCount() {
+		return commands.size();
+	}
+
+	public void write(Path path) throws IOException {
+		Map<String, Object> json = new LinkedHashMap<>();
+		json.put("world", world);
+		json.put("level-set", levelSet);
+		json.put("seed", Long.toString(seed));
+		json.put("frames", frames);
+		json.put("checksum", Long.toHexString(checksum));
+		json.put("commands", commands);
+
+		if (path.toAbsolutePath().getParent() != null) Files.createDirectories(path.toAbsolutePath().getParent());
+		try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			JSON.writeJSON(json, out);
+		}
+	}
+
+	public static Replay read(Path path) throws IOException {
+		List<Object> json;
+		try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			json = JSON.parseJSON(in);
+		}
+
+		if (json == null || json.isEmpty() || !(json.get(0) instanceof Map<?, ?>)) throw new IOException(path + " is not a replay");
+		Map<?, ?> map = (Map<?, ?>) json.get(0);
+
+		Replay replay;
+		try {
+			replay = new Replay(String.format("%s", map.get("world")), String.format("%s", map.get("level-set")), Long.parseLong(String.format("%s", map.get("seed"))));
+			replay.frames = ((Number) map.get("frames")).intValue();
+			replay.checksum = Long.parseUnsignedLong(String.format("%s", map.get("checksum")), 16);
+		} catch (NumberFormatException | ClassCastException | NullPointerException e) {
+			throw new IOException(path + " is not a replay", e);
+		}
+
+		if (map.get("commands") instanceof List<?>) {
+			for (Object c : (List<?>) map.get("commands")) {
+				if (!(c instanceof Map<?, ?>)) continue;
+
+				Map<String, Object> command = new LinkedHashMap<>();
+				for (Map.Entry<?, ?> e : ((Map<?, ?>) c).entrySet())
+					command.put(String.format("%s", e.getKey()), e.getValue());
+				replay.commands.add(command);
+			}
+		}
+
+		return replay;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>play</i></b><br>
+	 * <br>
+	 * {@code public boolean play()}<br>
+	 * <br>
+	 * Starts a new game with the seed of this replay, and runs it for as many frames as were recorded, giving each command in the frame that it was given in.
+	 * Nothing is drawn, and there is no waiting between frames.<br>
+	 * @return <code>true</code> if the game ended with the checksum that was recorded
+	 * @throws IllegalStateException If the world or level set of the replay does not exist
+	 *         </ul>
+	 */
+	public boolean play() {
+		World world = World.valueOf(this.world);
+		LevelSet levelSet = LevelSet.valueOf(this.levelSet);
+		if (world == null || levelSet == null) throw new IllegalStateException("Unknown world or level set " + this.world + ", " + this.levelSet);
+
+		GameLogic.reset(world, levelSet, seed);
+
+		int next = 0;
+		for (int frame = 0; frame <= frames; frame++) {
+			while (next < commands.size() && ((Number) commands.get(next).get("frame")).intValue() <= frame)
+				apply(commands.get(next++));
+
+			if (frame < frames) GameLogic.step();
+		}
+
+		return GameLogic.checksum() == checksum;
+	}
+
+	private static void apply(Map<String, Object> command) {
+		int x = command.get("x") instanceof Number ? ((Number) command.get("x")).intValue() : 0;
+		int y = command.get("y") instanceof Number ? ((Number) command.get("y")).intValue() : 0;
+		String id = String.format("%s", command.get("id"));
+
+		switch (String.format("%s", command.get("command"))) {
+			case "buy":
+				Purchasable type = TowerType.valueOf(id);
+				if (type == null) type = ObstacleType.valueOf(id);
+				if (type == null) type = InstantType.valueOf(id);
+				if (type == null) return;
+
+				GameLogic.buyObject(type);
+				GameLogic.buyObject(x, y);
+				break;
+			case "upgrade":
+				if (!(find(x, y) instanceof Tower)) return;
+				Tower tower = (Tower) find(x, y);
+
+				for (TowerUpgrade upgrade : tower.getType().upgrades) {
+					if (!upgrade.id.equals(id)) continue;
+
+					GameLogic.setSelectedEntity(tower);
+					GameLogic.buyObject(upgrade);
+					break;
+				}
+				break;
+			case "sell":
+				if (find(x, y) != null) GameLogic.sell(find(x, y));
+				break;
+			case "target":
+				if (find(x, y) instanceof Tower && ((Tower) find(x, y)).getGun() != null) {
+					GameLogic.setTargetType(((Tower) find(x, y)).getGun(), TargetType.valueOf(String.format("%s", command.get("target")).toUpperCase()));
+				}
+				break;
+			case "begin-level":
+				GameLogic.beginLevel();
+				break;
+			default:
+				// Speed changes only affect how fast frames are run
+				break;
+		}
+	}
+
+	/**
+	 * @return The tower or obstacle whose top left corner is at the given tile, or <code>null</code> if there is none
+	 */
+	private static CollidableEntity find(int x, int y) {
+		for (Entity e : GameLogic.getEntities()) {
+			if (e instanceof CollidableEntity && (int) e.getX() == x && (int) e.getY() == y) return (CollidableEntity) e;
+		}
+
+		return null;
+	}
+
+	public static void main(String[] args) throws IOException {
+		int repeat = 1;
+
+		List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-repeat")) repeat = Integer.parseInt(args[++i]);
+			else paths.add(Paths.get(args[i]));
+		}
+
+		if (paths.isEmpty()) {
+			System.err.println("Usage: Replay [-repeat n] replay.json...");
+			System.exit(1);
+		}
+
+		TypeGenerator.generateValues();
+
+		boolean ok = true;
+		for (Path path : paths) {
+			Replay replay = read(path);
+
+			for (int r = 0; r < repeat; r++) {
+				long t = System.nanoTime();
+				boolean same = replay.play();
+				t = System.nanoTime() - t;
+
+				ok &= same;
+				System.out.println(String.format(Locale.ROOT, "%s: %d frames, %d commands in %.1f ms (%.3f ms/frame), %s, %s", path, replay.frames, replay.commands.size(), t / 1e6, t / 1e6 / Math.max(1, replay.frames), GameLogic.getState() == State.PLAYING ? "playing" : GameLogic.getState().toString().toLowerCase(), same ? "same checksum" : "DIFFERENT CHECKSUM"));
+			}
+		}
+
+		if (!ok) System.exit(1);
+	}
+
+}
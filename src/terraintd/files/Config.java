@@ -24,6 +24,16 @@ public class Config {
 	public Locale language;
 	public boolean pauseOnBuy;
 
+	/**
+	 * The number of seconds of game time between autosaves, or 0 if the game is not autosaved
+	 */
+	public int autosaveInterval;
+
+	/**
+	 * Whether games are recorded so that they can be played again with {@link terraintd.Replay}
+	 */
+	public boolean recordReplays;
+
 	public Config(Path path) {
 		this.path = path;
 		this.read();
@@ -51,6 +61,12 @@ public class Config {
 
 			language = entries.containsKey("language") ? Locale.forLanguageTag(entries.get("language")) : Locale.US;
 			pauseOnBuy = entries.containsKey("pause-on-buy") ? Boolean.parseBoolean(entries.get("pause-on-buy")) : true;
+			try {
+				autosaveInterval = entries.containsKey("autosave-interval") ? Math.max(0, Integer.parseInt(entries.get("autosave-interval").trim())) : 60;
+			} catch (NumberFormatException e) {
+				autosaveInterval = 60;
+			}
+			recordReplays = entries.containsKey("record-replays") ? Boolean.parseBoolean(entries.get("record-replays").trim()) : false;
 		} catch (IOException e) {
 			return;
 		}
@@ -59,6 +75,8 @@ public class Config {
 	public void apply() {
 		Language.setCurrentLocale(language);
 		GameLogic.setPauseOnBuy(pauseOnBuy);
+		GameLogic.setAutosaveInterval(autosaveInterval);
+		GameLogic.setRecordReplays(recordReplays);
 		InfoPanel.refreshDisplay();
 		InfoPanel.paintHealthBar();
 		BuyPanel.updateButtons();
@@ -70,13 +88,15 @@ public class Config {
 	public void setValues() {
 		language = Language.getCurrentLocale();
 		pauseOnBuy = GameLogic.pausesOnBuy();
+		autosaveInterval = GameLogic.getAutosaveInterval();
+		recordReplays = GameLogic.isRecordingReplays();
 	}
 
 	public void write() {
 		try {
 			Files.delete(path);
 			Files.createFile(path);
-			Files.write(path, String.format("language=%s\npause-on-buy=%b", language.toLanguageTag(), pauseOnBuy).getBytes());
+			Files.write(path, String.format("language=%s\npause-on-buy=%b\nautosave-interval=%d\nrecord-replays=%b", language.toLanguageTag(), pauseOnBuy, autosaveInterval, recordReplays).getBytes());
 		} catch (IOException e) {}
 	}
 
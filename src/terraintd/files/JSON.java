@@ -1,123 +1,284 @@
 package terraintd.files;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class JSON {
 
-	public static final NumberFormat numbers = new DecimalFormat("0");
-
 	private JSON() {}
 
+	/**
+	 * <ul>
+	 * <li><b><i>parseJSON</i></b><br>
+	 * <br>
+	 * {@code public static List<Object> parseJSON(String json)}<br>
+	 * <br>
+	 * Parses the given JSON. See {@link #parseJSON(Reader)}.<br>
+	 * @param json The JSON to parse
+	 * @throws IllegalArgumentException If the JSON is malformed
+	 *         </ul>
+	 */
 	public static List<Object> parseJSON(String json) {
-		HashMap<String, Object> braceObjs = new HashMap<>();
-
-		String s = json;
-
-		int lastAddress = (int) (System.currentTimeMillis() % 32768);
-
-		Pattern quotes = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
-		Matcher m = quotes.matcher(s);
-		while (m.find()) {
-			String v = m.group(1);
-			String k = "@" + lastAddress++;
-
-			braceObjs.put(k, v.replaceAll("\\\\(.)", "$1"));
-			s = s.replace(m.group(), k);
-
-			m = quotes.matcher(s);
-		}
-
-		s = s.replaceAll("\\s+", "");
-
-		Pattern braces = Pattern.compile("\\[[^\\[\\]\\{\\}]*\\]|\\{[^\\[\\]\\{\\}]*?\\}");
-
-		m = braces.matcher(s);
-		while (m.find()) {
-			String g = m.group();
-			if (g.charAt(0) == '[') {
-				String[] terms = g.split("[\\[\\]\\,]");
-				ArrayList<Object> termList = new ArrayList<>(terms.length);
-				for (String term : terms) {
-					if (term.isEmpty()) continue;
-
-					if (term.startsWith("\"")) {
-						termList.add(term.substring(1, term.length() - 1));
-					} else if (term.startsWith("@")) {
-						termList.add(braceObjs.get(term));
-					} else if (term.equals("true")) {
-						termList.add(true);
-					} else if (term.equals("false")) {
-						termList.add(false);
-					} else {
-						try {
-							termList.add(Double.parseDouble(term));
-						} catch (NumberFormatException e) {
-							termList.add(null);
-						}
-					}
-				}
+		try {
+			return parseJSON(new StringReader(json));
+		} catch (IOException e) {
+			// A StringReader does not throw
+			throw new UncheckedIOException(e);
+		}
+	}
 
-				String k = "@" + lastAddress++;
-
-				s = s.replace(g, k);
-				if (s.equals(k)) return termList;
-				braceObjs.put(k, termList);
-			} else {
-				String[] terms = g.split("[\\{\\}\\,]");
-				Map<String, Object> termList = new HashMap<>();
-				for (String term : terms) {
-					if (term.isEmpty()) continue;
-
-					String[] kvs = term.split(":");
-					String k = (kvs[0].startsWith("@") ? (String) braceObjs.get(kvs[0]) : kvs[0].replace("\"", "")).toLowerCase();
-					if (kvs[1].startsWith("\"")) {
-						termList.put(k, kvs[1].substring(1, kvs[1].length() - 1));
-					} else if (kvs[1].startsWith("@")) {
-						termList.put(k, braceObjs.get(kvs[1]));
-					} else if (kvs[1].equals("true")) {
-						termList.put(k, true);
-					} else if (kvs[1].equals("false")) {
-						termList.put(k, false);
-					} else {
-						try {
-							termList.put(k, Double.parseDouble(kvs[1]));
-						} catch (NumberFormatException e) {
-							termList.put(k, null);
-						}
+	/**
+	 * <ul>
+	 * <li><b><i>parseJSON</i></b><br>
+	 * <br>
+	 * {@code public static List<Object> parseJSON(Reader in) throws IOException}<br>
+	 * <br>
+	 * Parses JSON from the given reader in a single pass, reading only as far as the end of the top-level value. Objects become {@link HashMap}s with lower case
+	 * keys, arrays become {@link ArrayList}s, and numbers become {@link Double}s. Values that are not valid JSON literals, including <code>null</code>, become
+	 * <code>null</code>.<br>
+	 * @param in The reader to parse. It is read in blocks, so it does not need to be buffered.
+	 * @return The top-level array, or a list containing only the top-level object. Returns <code>null</code> if the JSON is neither an array nor an object.
+	 * @throws IllegalArgumentException If the JSON is malformed
+	 *         </ul>
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Object> parseJSON(Reader in) throws IOException {
+		Parser parser = new Parser(in);
+
+		parser.skipWhitespace();
+
+		int c = parser.peek();
+		if (c == '[') {
+			return (List<Object>) parser.parseValue();
+		} else if (c == '{') {
+			ArrayList<Object> ret = new ArrayList<>(1);
+			ret.add(parser.parseValue());
+			return ret;
+		}
+
+		return null;
+	}
+
+	/**
+	 * A recursive descent parser. Empty elements and trailing commas are skipped, since some prototype files have them.
+	 */
+	private static class Parser {
+
+		final Reader in;
+
+		final char[] buffer = new char[8192];
+		int index, length;
+
+		/**
+		 * The number of characters that have been consumed, for error messages
+		 */
+		long pos;
+
+		final StringBuilder sb = new StringBuilder();
+
+		Parser(Reader in) {
+			this.in = in;
+		}
+
+		/**
+		 * @return The next character, without consuming it, or <code>-1</code> at the end of the input
+		 */
+		int peek() throws IOException {
+			if (index == length) {
+				index = 0;
+				length = Math.max(0, in.read(buffer, 0, buffer.length));
+				if (length == 0) return -1;
+			}
+
+			return buffer[index];
+		}
+
+		void advance() {
+			index++;
+			pos++;
+		}
+
+		void skipWhitespace() throws IOException {
+			int c;
+			while ((c = peek()) >= 0 && Character.isWhitespace(c))
+				advance();
+		}
+
+		char next() throws IOException {
+			skipWhitespace();
+
+			int c = peek();
+			if (c < 0) throw error("Unexpected end of JSON");
+
+			return (char) c;
+		}
+
+		void expect(char c) throws IOException {
+			if (next() != c) throw error("Expected '" + c + "'");
+			advance();
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + pos);
+		}
+
+		Object parseValue() throws IOException {
+			switch (next()) {
+				case '{':
+					return parseObject();
+				case '[':
+					return parseArray();
+				case '"':
+					return parseString();
+				default:
+					String term = parseTerm();
+					if (term.equals("true")) return true;
+					if (term.equals("false")) return false;
+
+					try {
+						return Double.parseDouble(term);
+					} catch (NumberFormatException e) {
+						return null;
 					}
+			}
+		}
+
+		Map<String, Object> parseObject() throws IOException {
+			expect('{');
+
+			Map<String, Object> map = new HashMap<>();
+
+			while (true) {
+				while (next() == ',')
+					advance();
+				if (next() == '}') {
+					advance();
+					return map;
 				}
 
-				String k = "@" + lastAddress++;
+				String key = (next() == '"' ? parseString() : parseTerm()).toLowerCase();
+				expect(':');
+				map.put(key, parseValue());
 
-				s = s.replace(g, k);
-				if (s.equals(k)) {
-					ArrayList<Object> ret = new ArrayList<>(1);
-					ret.add(termList);
-					return ret;
+				char c = next();
+				advance();
+				if (c == '}') return map;
+				if (c != ',') throw error("Expected ',' or '}'");
+			}
+		}
+
+		List<Object> parseArray() throws IOException {
+			expect('[');
+
+			ArrayList<Object> list = new ArrayList<>();
+
+			while (true) {
+				while (next() == ',')
+					advance();
+				if (next() == ']') {
+					advance();
+					return list;
 				}
-				braceObjs.put(k, termList);
+
+				list.add(parseValue());
+
+				char c = next();
+				advance();
+				if (c == ']') return list;
+				if (c != ',') throw error("Expected ',' or ']'");
 			}
+		}
+
+		String parseString() throws IOException {
+			expect('"');
 
-			m = braces.matcher(s);
+			sb.setLength(0);
+
+			while (true) {
+				int c = peek();
+				if (c < 0) throw error("Unterminated string");
+				advance();
+
+				if (c == '"') {
+					return sb.toString();
+				} else if (c != '\\') {
+					sb.append((char) c);
+					continue;
+				}
+
+				c = peek();
+				if (c < 0) throw error("Unterminated string");
+				advance();
+
+				switch (c) {
+					case 'b':
+						sb.append('\b');
+						break;
+					case 'f':
+						sb.append('\f');
+						break;
+					case 'n':
+						sb.append('\n');
+						break;
+					case 'r':
+						sb.append('\r');
+						break;
+					case 't':
+						sb.append('\t');
+						break;
+					case 'u':
+						int u = 0;
+						for (int i = 0; i < 4; i++) {
+							int digit = peek() < 0 ? -1 : Character.digit(peek(), 16);
+							if (digit < 0) throw error("Invalid unicode escape");
+							advance();
+							u = u << 4 | digit;
+						}
+						sb.append((char) u);
+						break;
+					default:
+						sb.append((char) c);
+				}
+			}
 		}
 
-		return null;
+		/**
+		 * Reads a literal that is not a string, such as a number, <code>true</code>, or an unquoted key
+		 */
+		String parseTerm() throws IOException {
+			sb.setLength(0);
+
+			int c;
+			while ((c = peek()) >= 0 && c != ',' && c != ':' && c != ']' && c != '}' && !Character.isWhitespace(c)) {
+				sb.append((char) c);
+				advance();
+			}
+
+			if (sb.length() == 0) throw error("Expected a value");
+
+			return sb.toString();
+		}
 	}
 
 	/**
 	 * <ul>
 	 * <li><b><i>writeJSON</i></b><br>
 	 * <br>
-	 * {@code String writeJSON()}<br>
+	 * {@code String writeJSON(Object obj)}<br>
 	 * <br>
 	 * Writes the given object as a JSON object<br>
 	 * @param obj The object to write. Can be any type of object (including <code>null</code>) <b>except primitive array types</b> (e.g. <code>int[]</code>, <code>float[]</code>, etc).
@@ -125,56 +286,173 @@ public class JSON {
 	 *         </ul>
 	 */
 	public static String writeJSON(Object obj) {
-		numbers.setMaximumFractionDigits(16);
+		StringWriter out = new StringWriter();
 
-		if (obj == null) {
-			return "null";
+		try {
+			writeJSON(obj, out);
+		} catch (IOException e) {
+			// A StringWriter does not throw
 		}
 
-		if (obj instanceof Number) {
-			return numbers.format(((Number) obj).doubleValue());
-		}
+		return out.toString();
+	}
 
-		if (obj instanceof Boolean) {
-			return Boolean.toString((boolean) obj);
-		}
+	/**
+	 * <ul>
+	 * <li><b><i>writeJSON</i></b><br>
+	 * <br>
+	 * {@code public static void writeJSON(Object obj, Writer out) throws IOException}<br>
+	 * <br>
+	 * Writes the given object as a JSON object directly to <code>out</code>, without building the whole string first. Numbers are written in plain notation
+	 * with at most 16 digits after the decimal point. Objects that are not strings, numbers, booleans, arrays, {@link Iterable}s or {@link Map}s are written as
+	 * objects containing their public fields.<br>
+	 * <br>
+	 * This method is thread-safe. <code>out</code> is not flushed.<br>
+	 * @param obj The object to write. Can be any type of object (including <code>null</code>) <b>except primitive array types</b>.
+	 * @param out The writer to write to. Wrap it in a {@link java.io.BufferedWriter BufferedWriter} if every write goes to a file or socket.
+	 *        </ul>
+	 */
+	public static void writeJSON(Object obj, Writer out) throws IOException {
+		if (obj == null) {
+			out.write("null");
+		} else if (obj instanceof Number) {
+			writeNumber(((Number) obj).doubleValue(), out);
+		} else if (obj instanceof Boolean) {
+			out.write((Boolean) obj ? "true" : "false");
+		} else if (obj instanceof String) {
+			writeString((String) obj, out);
+		} else if (obj instanceof Iterable) {
+			out.write('[');
+			boolean first = true;
+			for (Object o : (Iterable<?>) obj) {
+				if (!first) out.write(',');
+				first = false;
+				writeJSON(o, out);
+			}
+			out.write(']');
+		} else if (obj.getClass().isArray()) {
+			out.write('[');
+			Object[] array = (Object[]) obj;
+			for (int i = 0; i < array.length; i++) {
+				if (i > 0) out.write(',');
+				writeJSON(array[i], out);
+			}
+			out.write(']');
+		} else if (obj instanceof Map) {
+			out.write('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) obj).entrySet()) {
+				if (!first) out.write(',');
+				first = false;
+				writeString(String.valueOf(entry.getKey()), out);
+				out.write(':');
+				writeJSON(entry.getValue(), out);
+			}
+			out.write('}');
+		} else {
+			out.write('{');
+			boolean first = true;
+			for (Field field : fields.get(obj.getClass())) {
+				Object o;
+				try {
+					o = field.get(obj);
+				} catch (IllegalArgumentException | IllegalAccessException e) {
+					continue;
+				}
+				if (o == obj) continue;
 
-		if (obj instanceof String) {
-			return "\"" + ((String) obj).replaceAll("[\"\\\\]", "\\$0") + "\"";
+				if (!first) out.write(',');
+				first = false;
+				writeString(field.getName(), out);
+				out.write(':');
+				writeJSON(o, out);
+			}
+			out.write('}');
 		}
+	}
 
-		if (obj instanceof Iterable) {
-			String ret = "[";
-			for (Object o : (Iterable<?>) obj)
-				ret += writeJSON(o) + ",";
-			return ret.replaceAll(",$", "") + "]";
-		}
+	/**
+	 * The public instance fields of each class that has been written by {@link #writeJSON(Object, Writer)}
+	 */
+	private static final ClassValue<Field[]> fields = new ClassValue<Field[]>() {
 
-		if (obj.getClass().isArray()) {
-			String ret = "[";
-			for (Object o : (Object[]) obj)
-				ret += writeJSON(o) + ",";
-			return ret.replaceAll(",$", "") + "]";
+		@Override
+		protected Field[] computeValue(Class<?> type) {
+			return Arrays.stream(type.getFields()).filter(f -> !Modifier.isStatic(f.getModifiers())).toArray(Field[]::new);
 		}
-
-		if (obj instanceof Map) {
-			String ret = "{";
-			for (Object o : ((Map<?, ?>) obj).keySet())
-				ret += String.format("\"%s\":%s,", o, writeJSON(((Map<?, ?>) obj).get(o)));
-			return ret.replaceAll(",$", "") + "}";
+	};
+
+	private static void writeString(String s, Writer out) throws IOException {
+		out.write('"');
+
+		int start = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c != '"' && c != '\\' && c >= 0x20) continue;
+
+			out.write(s, start, i - start);
+			start = i + 1;
+
+			switch (c) {
+				case '"':
+					out.write("\\\"");
+					break;
+				case '\\':
+					out.write("\\\\");
+					break;
+				case '\n':
+					out.write("\\n");
+					break;
+				case '\r':
+					out.write("\\r");
+					break;
+				case '\t':
+					out.write("\\t");
+					break;
+				default:
+					out.write(String.format("\\u%04x", (int) c));
+			}
 		}
 
-		String ret = "{";
-		for (Field field : obj.getClass().getFields()) {
-			try {
-				if (Modifier.isStatic(field.getModifiers())) continue;
+		out.write(s, start, s.length() - start);
+		out.write('"');
+	}
 
-				Object o = field.get(obj);
-				if (o == obj) continue;
-				ret += String.format("\"%s\":%s,", field.getName(), writeJSON(o));
-			} catch (IllegalArgumentException | IllegalAccessException e) {}
+	/**
+	 * <ul>
+	 * <li><b><i>writeNumber</i></b><br>
+	 * <br>
+	 * {@code static void writeNumber(double d, Writer out) throws IOException}<br>
+	 * <br>
+	 * Writes the given number without an exponent, rounded to at most 16 digits after the decimal point, in the same way as a {@link java.text.DecimalFormat
+	 * DecimalFormat} with the pattern <code>0</code> would in an English locale. Unlike a <code>DecimalFormat</code>, this does not keep any state, so it can be
+	 * used from any thread.<br>
+	 *         </ul>
+	 */
+	static void writeNumber(double d, Writer out) throws IOException {
+		if (Double.isNaN(d) || Double.isInfinite(d)) {
+			out.write(Double.toString(d));
+		} else if (d == (long) d && Math.abs(d) < 1e15) {
+			if (d == 0 && 1 / d < 0) out.write('-');
+			out.write(Long.toString((long) d));
+		} else {
+			String s = Double.toString(d);
+			int point = s.indexOf('.');
+
+			if (s.indexOf('E') < 0 && s.length() - point - 1 <= 16) {
+				out.write(s);
+				return;
+			}
+
+			// Round the shortest representation, but settle ties with the exact value like DecimalFormat does
+			BigDecimal shortest = new BigDecimal(s);
+			BigDecimal rounded = shortest.setScale(16, RoundingMode.HALF_EVEN);
+			if (shortest.scale() == 17 && shortest.unscaledValue().mod(BigInteger.TEN).intValue() == 5) rounded = new BigDecimal(d).setScale(16, RoundingMode.HALF_EVEN);
+
+			String plain = rounded.signum() == 0 ? "0" : rounded.stripTrailingZeros().toPlainString();
+			if (d < 0 && plain.charAt(0) != '-') out.write('-');
+			out.write(plain);
 		}
-		return ret.replaceAll(",$", "") + "}";
 	}
 
 }
@@ -1,6 +1,7 @@
 package terraintd.files;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.HashMap;
@@ -33,8 +34,8 @@ public class ModListReader {
 	}
 
 	public synchronized static void write() {
-		try {
-			Files.write(Paths.get("terraintd/mods/mod-list.json"), JSON.writeJSON(mods).getBytes());
+		try (Writer out = Files.newBufferedWriter(Paths.get("terraintd/mods/mod-list.json"))) {
+			JSON.writeJSON(mods, out);
 		} catch (IOException e) {}
 	}
 
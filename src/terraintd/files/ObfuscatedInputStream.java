@@ -0,0 +1,151 @@
+package terraintd.files;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Reads text that was obfuscated by an {@link ObfuscatedOutputStream}, and returns it as UTF-8. Saved games written before the stream existed use the same
+ * format, so they can be read too.<br>
+ * <br>
+ * The stream reads one byte at a time from the underlying stream, so it should be given a buffered one.
+ */
+public class ObfuscatedInputStream extends FilterInputStream {
+
+	private final Random random;
+
+	private final byte[] decoded = new byte[4];
+	private int decodedPos, decodedLength;
+
+	/**
+	 * <ul>
+	 * <li><b><i>ObfuscatedInputStream</i></b><br>
+	 * <br>
+	 * {@code public ObfuscatedInputStream(InputStream in) throws IOException}<br>
+	 * <br>
+	 * Creates a stream that reads from <code>in</code>, and reads the seed from it.<br>
+	 * @param in The stream to read the obfuscated text from
+	 * @throws IOException If the seed cannot be read
+	 *         </ul>
+	 */
+	public ObfuscatedInputStream(InputStream in) throws IOException {
+		super(in);
+
+		byte[] header = new byte[5];
+		for (int i = 0; i < header.length; i++) {
+			int b = in.read();
+			if (b < 0) throw new IOException("Missing seed");
+			header[i] = (byte) b;
+		}
+
+		try {
+			this.random = new Random(Long.parseLong(new String(header, StandardCharsets.US_ASCII), 36));
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid seed", e);
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (decodedPos == decodedLength && !decodeNext()) return -1;
+
+		return decoded[decodedPos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) return 0;
+
+		int n = 0;
+		while (n < len) {
+			if (decodedPos == decodedLength && !decodeNext()) break;
+
+			int count = Math.min(len - n, decodedLength - decodedPos);
+			System.arraycopy(decoded, decodedPos, b, off + n, count);
+			decodedPos += count;
+			n += count;
+		}
+
+		return n == 0 ? -1 : n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped < n && read() >= 0)
+			skipped++;
+
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return decodedLength - decodedPos;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	/**
+	 * Reads the next character from the underlying stream and puts the original character in {@link #decoded}
+	 * @return <code>false</code> if the end of the stream has been reached
+	 */
+	private boolean decodeNext() throws IOException {
+		int c = readCodePoint();
+		if (c < 0) return false;
+
+		if (Character.isSupplementaryCodePoint(c)) {
+			char high = (char) (Character.highSurrogate(c) ^ random.nextInt(256));
+			char low = (char) (Character.lowSurrogate(c) ^ random.nextInt(256));
+			c = Character.toCodePoint(high, low);
+		} else {
+			c ^= random.nextInt(256);
+		}
+
+		decodedPos = 0;
+		decodedLength = ObfuscatedOutputStream.encode(c, decoded);
+		return true;
+	}
+
+	/**
+	 * @return The next UTF-8 code point in the underlying stream, <code>0xFFFD</code> if it is malformed, or <code>-1</code> at the end of the stream
+	 */
+	private int readCodePoint() throws IOException {
+		int b = in.read();
+		if (b < 0x80) return b;
+
+		int c, remaining;
+		if (b >= 0xF8 || b < 0xC0) {
+			return 0xFFFD;
+		} else if (b >= 0xF0) {
+			c = b & 0x07;
+			remaining = 3;
+		} else if (b >= 0xE0) {
+			c = b & 0x0F;
+			remaining = 2;
+		} else {
+			c = b & 0x1F;
+			remaining = 1;
+		}
+
+		while (remaining-- > 0) {
+			b = in.read();
+			if ((b & 0xC0) != 0x80) return 0xFFFD;
+			c = c << 6 | b & 0x3F;
+		}
+
+		return c;
+	}
+}
@@ -0,0 +1,141 @@
+package terraintd.files;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Obfuscates the UTF-8 text written to it in the format that saved games used before {@link SaveOutputStream}, so that they cannot be edited by hand.<br>
+ * <br>
+ * The output starts with the seed of a {@link Random}, written as five base 36 digits. Every character of the text is then XORed with the next
+ * <code>nextInt(256)</code> of that random, and the result is written as UTF-8. Characters outside the Basic Multilingual Plane are treated as their two UTF-16
+ * surrogates. Read the output with an {@link ObfuscatedInputStream}.
+ */
+public class ObfuscatedOutputStream extends FilterOutputStream {
+
+	/**
+	 * 36<sup>5</sup>, the number of seeds that fit in the header
+	 */
+	static final long SEED_BOUND = 60466176;
+
+	private final Random random;
+
+	private final byte[] encoded = new byte[4];
+
+	/**
+	 * The bits of a UTF-8 sequence that has not been completely written yet, and the number of bytes still missing from it
+	 */
+	private int codePoint, remaining;
+
+	public ObfuscatedOutputStream(OutputStream out) throws IOException {
+		this(out, Math.floorMod(System.nanoTime(), SEED_BOUND));
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>ObfuscatedOutputStream</i></b><br>
+	 * <br>
+	 * {@code public ObfuscatedOutputStream(OutputStream out, long seed) throws IOException}<br>
+	 * <br>
+	 * Creates a stream that obfuscates with the given seed, and writes the seed to <code>out</code>.<br>
+	 * @param out The stream to write the obfuscated text to
+	 * @param seed A number from 0 (inclusive) to 36<sup>5</sup> (exclusive)
+	 *        </ul>
+	 */
+	public ObfuscatedOutputStream(OutputStream out, long seed) throws IOException {
+		super(out);
+
+		if (seed < 0 || seed >= SEED_BOUND) throw new IllegalArgumentException("seed out of range: " + seed);
+
+		this.random = new Random(seed);
+
+		String seedStr = Long.toString(seed, 36);
+		out.write(("00000".substring(seedStr.length()) + seedStr).getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		b &= 0xFF;
+
+		if (remaining > 0) {
+			if ((b & 0xC0) == 0x80) {
+				codePoint = codePoint << 6 | b & 0x3F;
+				if (--remaining == 0) writeCodePoint(codePoint);
+				return;
+			}
+
+			remaining = 0;
+			writeCodePoint(0xFFFD);
+		}
+
+		if (b < 0x80) {
+			writeCodePoint(b);
+		} else if (b >= 0xF8 || b < 0xC0) {
+			writeCodePoint(0xFFFD);
+		} else if (b >= 0xF0) {
+			codePoint = b & 0x07;
+			remaining = 3;
+		} else if (b >= 0xE0) {
+			codePoint = b & 0x0F;
+			remaining = 2;
+		} else {
+			codePoint = b & 0x1F;
+			remaining = 1;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		for (int i = off; i < off + len; i++)
+			write(b[i]);
+	}
+
+	private void writeCodePoint(int c) throws IOException {
+		if (Character.isSupplementaryCodePoint(c)) {
+			char high = (char) (Character.highSurrogate(c) ^ random.nextInt(256));
+			char low = (char) (Character.lowSurrogate(c) ^ random.nextInt(256));
+			c = Character.toCodePoint(high, low);
+		} else {
+			c ^= random.nextInt(256);
+		}
+
+		out.write(encoded, 0, encode(c, encoded));
+	}
+
+	/**
+	 * Writes the given code point to <code>buffer</code> as UTF-8, and returns the number of bytes written
+	 */
+	static int encode(int c, byte[] buffer) {
+		if (c < 0x80) {
+			buffer[0] = (byte) c;
+			return 1;
+		} else if (c < 0x800) {
+			buffer[0] = (byte) (0xC0 | c >> 6);
+			buffer[1] = (byte) (0x80 | c & 0x3F);
+			return 2;
+		} else if (c < 0x10000) {
+			buffer[0] = (byte) (0xE0 | c >> 12);
+			buffer[1] = (byte) (0x80 | c >> 6 & 0x3F);
+			buffer[2] = (byte) (0x80 | c & 0x3F);
+			return 3;
+		} else {
+			buffer[0] = (byte) (0xF0 | c >> 18);
+			buffer[1] = (byte) (0x80 | c >> 12 & 0x3F);
+			buffer[2] = (byte) (0x80 | c >> 6 & 0x3F);
+			buffer[3] = (byte) (0x80 | c & 0x3F);
+			return 4;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (remaining > 0) {
+			remaining = 0;
+			writeCodePoint(0xFFFD);
+		}
+
+		super.close();
+	}
+}
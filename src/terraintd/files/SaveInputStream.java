@@ -0,0 +1,125 @@
+package terraintd.files;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * Reads saved games that were written by a {@link SaveOutputStream}.
+ */
+public class SaveInputStream extends DataInputStream {
+
+	/**
+	 * The version of the format that is being read
+	 */
+	public final int version;
+
+	private final ArrayList<String> strings = new ArrayList<>();
+
+	/**
+	 * <ul>
+	 * <li><b><i>SaveInputStream</i></b><br>
+	 * <br>
+	 * {@code public SaveInputStream(InputStream in) throws IOException}<br>
+	 * <br>
+	 * Creates a stream that reads from <code>in</code>, and reads the header from it.<br>
+	 * @param in The stream to read from. It is read in small pieces, so it should be buffered.
+	 * @throws IOException If <code>in</code> is not a saved game that this version can read
+	 *         </ul>
+	 */
+	public SaveInputStream(InputStream in) throws IOException {
+		super(in);
+
+		byte[] magic = new byte[SaveOutputStream.MAGIC.length];
+		readFully(magic);
+		for (int i = 0; i < magic.length; i++) {
+			if (magic[i] != SaveOutputStream.MAGIC[i]) throw new IOException("Not a saved game");
+		}
+
+		this.version = readVarInt();
+		if (version != SaveOutputStream.VERSION) throw new IOException("Unsupported save version " + version);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>isSave</i></b><br>
+	 * <br>
+	 * {@code public static boolean isSave(InputStream in) throws IOException}<br>
+	 * <br>
+	 * Checks whether the given stream starts with the header of a {@link SaveOutputStream}, without consuming any of it.<br>
+	 * @param in A stream that supports {@link InputStream#mark(int) mark}
+	 * @return <code>true</code> if the stream should be read with a {@link SaveInputStream}, <code>false</code> if it is in some other format
+	 *         </ul>
+	 */
+	public static boolean isSave(InputStream in) throws IOException {
+		in.mark(SaveOutputStream.MAGIC.length);
+
+		try {
+			for (byte b : SaveOutputStream.MAGIC) {
+				if (in.read() != (b & 0xFF)) return false;
+			}
+			return true;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>readVarInt</i></b><br>
+	 * <br>
+	 * {@code public int readVarInt() throws IOException}<br>
+	 * <br>
+	 * @return An integer written by {@link SaveOutputStream#writeVarInt(int)}
+	 * @throws IOException If the stream ends or the integer is longer than five bytes
+	 *         </ul>
+	 */
+	public int readVarInt() throws IOException {
+		int v = 0;
+
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			if (b < 0x80) return v;
+		}
+
+		throw new IOException("Malformed integer");
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>readIndex</i></b><br>
+	 * <br>
+	 * {@code public int readIndex() throws IOException}<br>
+	 * <br>
+	 * @return An index written by {@link SaveOutputStream#writeIndex(int)}, or <code>-1</code> if there was none.
+	 *         </ul>
+	 */
+	public int readIndex() throws IOException {
+		return readVarInt() - 1;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>readString</i></b><br>
+	 * <br>
+	 * {@code public String readString() throws IOException}<br>
+	 * <br>
+	 * @return A string written by {@link SaveOutputStream#writeString(String)}
+	 * @throws IOException If the string refers to one that has not been read yet
+	 *         </ul>
+	 */
+	public String readString() throws IOException {
+		int id = readVarInt();
+		if (id == 0) {
+			String s = readUTF();
+			strings.add(s);
+			return s;
+		}
+
+		if (id > strings.size()) throw new IOException("Unknown string " + id);
+
+		return strings.get(id - 1);
+	}
+}
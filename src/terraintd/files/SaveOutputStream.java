@@ -0,0 +1,102 @@
+package terraintd.files;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+/**
+ * Writes saved games in the binary format. Every saved game starts with {@link #MAGIC} and the {@link #VERSION} of the format, which
+ * {@link SaveInputStream} reads back.<br>
+ * <br>
+ * Besides the methods of {@link DataOutputStream}, the stream writes non-negative integers as variable length quantities, and writes each distinct string
+ * only once, so that type ids that are shared by many entities take up a single byte after their first use.
+ */
+public class SaveOutputStream extends DataOutputStream {
+
+	/**
+	 * The bytes that every binary saved game starts with. The first byte is not ASCII, so that saved games in the old text format, which start with an ASCII
+	 * seed, are never mistaken for binary ones.
+	 */
+	static final byte[] MAGIC = {(byte) 0x89, 'T', 'D', 'G'};
+
+	/**
+	 * The version of the format that is written
+	 */
+	public static final int VERSION = 1;
+
+	private final HashMap<String, Integer> strings = new HashMap<>();
+
+	/**
+	 * <ul>
+	 * <li><b><i>SaveOutputStream</i></b><br>
+	 * <br>
+	 * {@code public SaveOutputStream(OutputStream out) throws IOException}<br>
+	 * <br>
+	 * Creates a stream that writes to <code>out</code>, and writes the header to it.<br>
+	 * @param out The stream to write to. It is written in small pieces, so it should be buffered.
+	 *        </ul>
+	 */
+	public SaveOutputStream(OutputStream out) throws IOException {
+		super(out);
+
+		write(MAGIC);
+		writeVarInt(VERSION);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>writeVarInt</i></b><br>
+	 * <br>
+	 * {@code public void writeVarInt(int v) throws IOException}<br>
+	 * <br>
+	 * Writes the given integer seven bits at a time, least significant first, setting the high bit of every byte but the last. Small numbers take a single
+	 * byte, but negative numbers always take five.<br>
+	 * @param v The integer to write
+	 *        </ul>
+	 */
+	public void writeVarInt(int v) throws IOException {
+		while ((v & ~0x7F) != 0) {
+			write(v & 0x7F | 0x80);
+			v >>>= 7;
+		}
+
+		write(v);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>writeIndex</i></b><br>
+	 * <br>
+	 * {@code public void writeIndex(int index) throws IOException}<br>
+	 * <br>
+	 * Writes an index into a list that is <code>-1</code> if there is no such element, such as the result of {@link java.util.List#indexOf(Object) indexOf}.<br>
+	 * @param index The index to write
+	 *        </ul>
+	 */
+	public void writeIndex(int index) throws IOException {
+		writeVarInt(index < 0 ? 0 : index + 1);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>writeString</i></b><br>
+	 * <br>
+	 * {@code public void writeString(String s) throws IOException}<br>
+	 * <br>
+	 * Writes the given string the first time that it is written to this stream, and only its number after that.<br>
+	 * @param s The string to write
+	 *        </ul>
+	 */
+	public void writeString(String s) throws IOException {
+		Integer id = strings.get(s);
+		if (id != null) {
+			writeVarInt(id + 1);
+			return;
+		}
+
+		strings.put(s, strings.size());
+		writeVarInt(0);
+		writeUTF(s);
+	}
+}
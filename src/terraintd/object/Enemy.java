@@ -2,11 +2,11 @@ package terraintd.object;
 
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.SplittableRandom;
 
 import terraintd.GameLogic;
+import terraintd.pathfinder.FlowField;
 import terraintd.pathfinder.Node;
 import terraintd.types.EffectType;
 import terraintd.types.EnemyType;
@@ -18,65 +18,71 @@ public class Enemy extends Entity implements Weapon {
 	public final EnemyType type;
 	private final Gun gun;
 
-	private double x, y;
-	private double health;
-	private double deathTime = 0;
-	private int dead;
 	public List<Projectile> futureDamage;
 
-	private Node nextNode, prevNode;
+	/**
+	 * The store that holds the state of this enemy, and the slot of this enemy in it, or <code>null</code> if this enemy is not in an {@link EntityRegistry}
+	 */
+	EnemyStore store;
+	int slot = -1;
 
-	private Node[][][] newNodeSet;
+	/**
+	 * The state of this enemy while it has no store, which is the state it starts with until it is added to a registry, and its last state once it has been
+	 * removed from one. An enemy without a store has no status effects.
+	 */
+	double x, y, health, deathTime;
+	int dead, prevNode, nextNode;
+	FlowField field;
+	SplittableRandom random;
 
-	private Set<StatusEffect> statusEffects;
+	int gridCell = -1, gridSlot = -1;
 
 	@Override
 	public double getX() {
-		return this.x;
+		return store == null ? x : store.x[slot];
 	}
 
 	@Override
 	public double getY() {
-		return this.y;
+		return store == null ? y : store.y[slot];
 	}
 
 	private final double width;
 
-	public Enemy(EnemyType type, Node location) {
+	public Enemy(EnemyType type, FlowField field, int location) {
 		this.type = type;
-		this.x = location.getAbsX();
-		this.y = location.getAbsY();
+		this.field = field;
+		this.random = GameLogic.random.split();
+		this.x = field.getAbsX(location);
+		this.y = field.getAbsY(location);
 		this.prevNode = location;
-		this.nextNode = findNextNode(prevNode);
+		this.nextNode = EnemyStore.findNextNode(field, random, location);
 		this.health = type.health;
 		this.gun = type.projectiles != null && type.projectiles.length > 0 ? new Gun(this) : null;
 
 		this.width = Math.hypot(type.image.width, type.image.height);
 
-		this.statusEffects = new HashSet<>();
-
 		this.futureDamage = new ArrayList<>();
 	}
 
 	/**
 	 * <b>THIS CONSTRUCTOR FOR USE IN {@link GameLogic#open(java.nio.file.Path)} ONLY</b>
 	 */
-	public Enemy(EnemyType type, Node prevNode, Node nextNode, double x, double y, double deathTime, double health) {
+	public Enemy(EnemyType type, int prevNode, int nextNode, double x, double y, double deathTime, double health) {
 		this.type = type;
 		this.prevNode = prevNode;
 		this.nextNode = nextNode;
+		this.random = GameLogic.random.split();
 		this.x = x;
 		this.y = y;
 		this.deathTime = deathTime;
 		this.health = health;
-		this.dead = health < 0.00001 ? (nextNode == null ? 2 : 1) : 0;
+		this.dead = health < 0.00001 ? (nextNode < 0 ? 2 : 1) : 0;
 
 		this.gun = type.projectiles != null && type.projectiles.length > 0 ? new Gun(this) : null;
 
 		this.width = Math.hypot(type.image.width, type.image.height);
 
-		this.statusEffects = new HashSet<>();
-
 		this.futureDamage = new ArrayList<>();
 	}
 
@@ -87,121 +93,58 @@ public class Enemy extends Entity implements Weapon {
 
 	@Override
 	public Rectangle2D getRectangle() {
-		return new Rectangle2D.Double(this.x + this.type.image.x - 0.5 * width, this.y + this.type.image.y - 0.5 * width, width, width);
+		return new Rectangle2D.Double(getX() + this.type.image.x - 0.5 * width, getY() + this.type.image.y - 0.5 * width, width, width);
 	}
 
-	@Override
-	public Projectile[] createProjectiles(ProjectileType[] types) {
-		Projectile[] ps = new Projectile[types.length];
-
-		for (int n = 0; n < types.length; n++)
-			ps[n] = new Projectile(types[n], this);
+	/**
+	 * <ul>
+	 * <li><b><i>contains</i></b><br>
+	 * <br>
+	 * {@code public boolean contains(double x, double y)}<br>
+	 * <br>
+	 * The same as <code>getRectangle().contains(x, y)</code>, without creating the rectangle.<br>
+	 * @param x The x position of the point
+	 * @param y The y position of the point
+	 * @return <code>true</code> if the point is inside this enemy's rectangle
+	 *         </ul>
+	 */
+	public boolean contains(double x, double y) {
+		double x0 = getX() + this.type.image.x - 0.5 * width;
+		double y0 = getY() + this.type.image.y - 0.5 * width;
 
-		return ps;
+		return x >= x0 && y >= y0 && x < x0 + width && y < y0 + width;
 	}
 
-	public boolean move() {
-		double speedMultiplier = 1;
-
-		StatusEffect[] effects = statusEffects.toArray(new StatusEffect[statusEffects.size()]);
-		for (StatusEffect effect : effects) {
-			if (effect.fade()) {
-				statusEffects.remove(effect);
-				continue;
-			}
-
-			switch (effect.type) {
-				case FIRE:
-					this.health -= .125 * effect.amplifier + 1.125;
-					effect.registerInflictDamage(.125 * effect.amplifier + 1.125);
-					if (this.health < 0.00001) effect.registerInflictKill();
-					break;
-				case FROST:
-					if (effect.amplifier >= 10.999) return true;
-					speedMultiplier *= ((effect.amplifier - 11) * effect.origDuration + 11 * effect.getDuration()) / ((effect.amplifier - 11) * effect.origDuration);
-					if (speedMultiplier <= 0.001) return true;
-					break;
-				case PARALYSIS:
-					return true;
-				case POISON:
-					double lastHealth = this.health;
-					this.health = this.health * (1 - effect.amplifier * 0.0021) - 0.05 * effect.amplifier;
-					effect.registerInflictDamage(lastHealth - this.health);
-					if (this.health < 0.00001) effect.registerInflictKill();
-					break;
-				case SLOWNESS:
-					speedMultiplier *= 1 - 0.09090909 * effect.amplifier;
-					break;
-				default:
-					break;
-			}
-		}
-		return move(GameLogic.FRAME_TIME, speedMultiplier);
+	/**
+	 * @return How far from its center this enemy's rectangle reaches, along either axis
+	 */
+	double getReach() {
+		return Math.max(Math.abs(this.type.image.x), Math.abs(this.type.image.y)) + 0.5 * width;
 	}
 
-	protected boolean move(double time, double speedMult) {
-		int x = prevNode.x - (!prevNode.top && prevNode.x - nextNode.x == 1 ? 1 : 0);
-		int y = prevNode.y - (prevNode.top && prevNode.y - nextNode.y == 1 ? 1 : 0);
-
-		double speed = speedMult * type.speed.get(GameLogic.getCurrentWorld().tiles[y][x].terrain);
-		double distance = speed * time;
-		double d = Math.hypot(this.x - nextNode.getAbsX(), this.y - nextNode.getAbsY());
-
-		for (StatusEffect effect : statusEffects) {
-			if (effect.type == StatusEffectType.BLEED) {
-				this.health -= 10 * effect.amplifier * distance;
-				effect.registerInflictDamage(10 * effect.amplifier * distance);
-				if (this.health < 0.00001) effect.registerInflictKill();
-			}
-		}
-
-		if (distance > d) {
-			this.x = nextNode.getAbsX();
-			this.y = nextNode.getAbsY();
-			this.prevNode = nextNode;
-			this.nextNode = findNextNode(prevNode);
-			if (newNodeSet != null) resetNodes(newNodeSet);
-			boolean ret = nextNode == null ? false : move((distance - d) / speed, speedMult);
-			if (!ret) dead = 2;
-			return ret;
-		}
-
-		double dx = nextNode.getAbsX() - prevNode.getAbsX();
-		double dy = nextNode.getAbsY() - prevNode.getAbsY();
-
-		this.y += dy * distance;
-		this.x += dx * distance;
+	@Override
+	public Projectile[] createProjectiles(ProjectileType[] types) {
+		Projectile[] ps = new Projectile[types.length];
 
-		return true;
-	}
+		for (int n = 0; n < types.length; n++)
+			ps[n] = GameLogic.projectilePool.obtain(types[n], this);
 
-	private Node findNextNode(Node node) {
-		Node[] nodes = node.getNextNodes();
-		if (nodes.length == 0) {
-			return null;
-		} else if (nodes.length == 1) {
-			return nodes[0];
-		} else {
-			return nodes[GameLogic.rand.nextInt(nodes.length)];
-		}
+		return ps;
 	}
 
-	public void resetNodes(Node[][][] nodes) {
-		if (this.nextNode != null) {
-			Node newNextNode = nodes[nextNode.y][nextNode.x][nextNode.top ? 1 : 0];
-			Node newPrevNode = nodes[prevNode.y][prevNode.x][prevNode.top ? 1 : 0];
-
-			if (newNextNode.isExplored()) {
-				this.nextNode = newNextNode;
-				this.newNodeSet = null;
-			} else if (newPrevNode.isExplored()) {
-				this.nextNode = findNextNode(newPrevNode);
-				this.x = newPrevNode.getAbsX();
-				this.y = newPrevNode.getAbsY();
-			} else {
-				this.newNodeSet = nodes;
-			}
-		}
+	/**
+	 * <ul>
+	 * <li><b><i>resetNodes</i></b><br>
+	 * <br>
+	 * {@code public void resetNodes(FlowField field)}<br>
+	 * <br>
+	 * Makes this enemy follow the given flow field from now on, picking a new next node if its current one is not in the field. Enemies that are not in a game
+	 * do not move, so they are not changed.<br>
+	 * @param field The new flow field of this enemy
+	 *        </ul>
+	 */
+	public void resetNodes(FlowField field) {
+		if (store != null) store.resetNodes(slot, field);
 	}
 
 	/**
@@ -216,10 +159,21 @@ public class Enemy extends Entity implements Weapon {
 	 *         </ul>
 	 */
 	public boolean damage(double damage) {
-		this.health -= damage;
+		if (store == null) {
+			this.health -= damage;
+
+			if (this.health <= 0.00001 && this.dead == 0) {
+				this.dead = 1;
+				return true;
+			}
+			return false;
+		}
 
-		if (this.health <= 0.00001 && this.dead == 0) {
-			this.dead = 1;
+		double[] health = store.health;
+		health[slot] -= damage;
+
+		if (health[slot] <= 0.00001 && store.dead[slot] == 0) {
+			store.dead[slot] = 1;
 			return true;
 		}
 		return false;
@@ -228,28 +182,29 @@ public class Enemy extends Entity implements Weapon {
 	public boolean damage(Projectile p) {
 		this.futureDamage.remove(p);
 
-		double h = this.health;
+		double h = getHealth();
 		double dm = 1;
-		for (StatusEffect effect : statusEffects) {
-			if (effect.type == StatusEffectType.WEAKNESS) dm *= (1 + 0.25 * effect.amplifier);
+		for (int k = 0, count = store == null ? 0 : store.effectCount[slot]; k < count; k++) {
+			StatusEffect effect = store.getEffect(slot, k);
+			if (effect.getType() == StatusEffectType.WEAKNESS) dm *= (1 + 0.25 * effect.getAmplifier());
 		}
 		
 		boolean kill = this.damage(dm * p.damageForEntity(this));
-		if (p.shootingEntity != null) {
-			if (kill) p.shootingEntity.getGun().registerKill();
-			p.shootingEntity.getGun().registerDamage(Math.max(0, h) - Math.max(0, this.health));
+		if (p.getShootingEntity() != null) {
+			if (kill) p.getShootingEntity().getGun().registerKill();
+			p.getShootingEntity().getGun().registerDamage(Math.max(0, h) - Math.max(0, getHealth()));
 		}
 
-		if (p.type.effects != null) {
-			for (EffectType effect : p.type.effects)
-				this.addStatusEffect(new StatusEffect(p.getEffectInflictor(), effect));
+		if (p.getType().effects != null && store != null) {
+			for (EffectType effect : p.getType().effects)
+				store.inflict(slot, p.getEffectInflictor(), effect);
 		}
 
 		return kill;
 	}
 
 	public double getHealth() {
-		return this.health;
+		return store == null ? health : store.health[slot];
 	}
 
 	public void damageFuture(Projectile p) {
@@ -257,37 +212,66 @@ public class Enemy extends Entity implements Weapon {
 	}
 
 	public double getFutureHealth() {
-		double ret = this.health;
+		double ret = getHealth();
 
 		for (Projectile p : futureDamage)
-			ret -= Math.min(p.type.minDamage, p.type.maxDamage);
+			ret -= Math.min(p.getType().minDamage, p.getType().maxDamage);
 
 		return ret;
 	}
 
 	public Node getPrevNode() {
-		return this.prevNode;
+		FlowField field = getField();
+		return field == null ? null : field.getNode(getPrevIndex());
 	}
 
 	public Node getNextNode() {
-		return nextNode;
+		FlowField field = getField();
+		return field == null ? null : field.getNode(getNextIndex());
+	}
+
+	private FlowField getField() {
+		return store == null ? field : store.field[slot];
+	}
+
+	/**
+	 * @return The index of the node that this enemy is walking from, as used by {@link FlowField}.
+	 */
+	public int getPrevIndex() {
+		return store == null ? prevNode : store.prevNode[slot];
 	}
 
-	public boolean die() {
-		this.deathTime += GameLogic.FRAME_TIME;
-		return this.deathTime >= 1;
+	/**
+	 * @return The index of the node that this enemy is walking to, as used by {@link FlowField}, or <code>-1</code> if it has reached a goal.
+	 */
+	public int getNextIndex() {
+		return store == null ? nextNode : store.nextNode[slot];
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getNextCost</i></b><br>
+	 * <br>
+	 * {@code public double getNextCost()}<br>
+	 * <br>
+	 * @return The time it takes to get from the next node of this enemy to the nearest goal, or 0 if there is no next node.
+	 *         </ul>
+	 */
+	public double getNextCost() {
+		int nextNode = getNextIndex();
+		return nextNode < 0 ? 0 : getField().getCost(nextNode);
 	}
 
 	public double getDeathTime() {
-		return deathTime;
+		return store == null ? deathTime : store.deathTime[slot];
 	}
 
 	public boolean isDead() {
-		return dead == 1;
+		return getDead() == 1;
 	}
 
 	public int getDead() {
-		return dead;
+		return store == null ? dead : store.dead[slot];
 	}
 
 	@Override
@@ -296,22 +280,35 @@ public class Enemy extends Entity implements Weapon {
 	}
 
 	public double getRotation() {
-		return nextNode == null ? 0 : Math.atan2(nextNode.getAbsY() - prevNode.getAbsY(), nextNode.getAbsX() - prevNode.getAbsX());
+		FlowField field = getField();
+		int prevNode = getPrevIndex(), nextNode = getNextIndex();
+		return nextNode < 0 ? 0 : Math.atan2(field.getAbsY(nextNode) - field.getAbsY(prevNode), field.getAbsX(nextNode) - field.getAbsX(prevNode));
 	}
 
+	/**
+	 * <ul>
+	 * <li><b><i>addStatusEffect</i></b><br>
+	 * <br>
+	 * {@code public void addStatusEffect(StatusEffect effect)}<br>
+	 * <br>
+	 * Adds the given effect to this enemy, replacing the same effect from the same inflictor. Enemies that are not in a game have no effects, so this does
+	 * nothing to them.<br>
+	 * @param effect The effect to add
+	 *        </ul>
+	 */
 	public void addStatusEffect(StatusEffect effect) {
-		this.statusEffects.remove(effect);
-		this.statusEffects.add(effect);
+		if (store != null) store.addEffect(slot, effect);
 	}
 
 	public StatusEffect[] getStatusEffects() {
-		return statusEffects.toArray(new StatusEffect[statusEffects.size()]);
+		return store == null ? new StatusEffect[0] : store.getEffects(slot);
 	}
 
 	public double getDamage() {
 		double dm = 1;
-		for (StatusEffect effect : statusEffects) {
-			if (effect.type == StatusEffectType.BLUNTNESS) dm /= (1 + 0.25 * effect.amplifier);
+		for (int k = 0, count = store == null ? 0 : store.effectCount[slot]; k < count; k++) {
+			StatusEffect effect = store.getEffect(slot, k);
+			if (effect.getType() == StatusEffectType.BLUNTNESS) dm /= (1 + 0.25 * effect.getAmplifier());
 		}
 		return dm * this.type.damage;
 	}
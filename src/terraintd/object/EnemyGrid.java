@@ -0,0 +1,189 @@
+package terraintd.object;
+
+import java.util.List;
+
+/**
+ * A uniform grid of {@link Enemy Enemies}, with one cell per world tile. Enemies are filed under the tile that contains their center, and are moved between cells
+ * with {@link #update(Enemy)} whenever they may have crossed a tile boundary.
+ */
+public class EnemyGrid {
+
+	public final int width, height;
+
+	private final Enemy[][] cells;
+	private final int[] counts;
+
+	/**
+	 * How far from its center the rectangle of any enemy that has been added reaches, along either axis
+	 */
+	private double reach;
+
+	public EnemyGrid(int width, int height) {
+		this.width = Math.max(1, width);
+		this.height = Math.max(1, height);
+
+		this.cells = new Enemy[this.width * this.height][];
+		this.counts = new int[this.width * this.height];
+	}
+
+	private int cellX(double x) {
+		return x < 0 ? 0 : x >= width ? width - 1 : (int) x;
+	}
+
+	private int cellY(double y) {
+		return y < 0 ? 0 : y >= height ? height - 1 : (int) y;
+	}
+
+	public void add(Enemy e) {
+		if (e.gridCell >= 0) return;
+
+		reach = Math.max(reach, e.getReach());
+		insert(e, cellY(e.getY()) * width + cellX(e.getX()));
+	}
+
+	public void remove(Enemy e) {
+		if (e.gridCell < 0) return;
+
+		int cell = e.gridCell;
+		Enemy[] enemies = cells[cell];
+		int last = --counts[cell];
+
+		if (e.gridSlot != last) {
+			enemies[e.gridSlot] = enemies[last];
+			enemies[e.gridSlot].gridSlot = e.gridSlot;
+		}
+		enemies[last] = null;
+
+		e.gridCell = -1;
+		e.gridSlot = -1;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>update</i></b><br>
+	 * <br>
+	 * {@code public void update(Enemy e)}<br>
+	 * <br>
+	 * Moves the given enemy to the cell containing its current position, if it is not already there. Enemies that are not in this grid are ignored.<br>
+	 * @param e The enemy that has moved
+	 *        </ul>
+	 */
+	public void update(Enemy e) {
+		if (e.gridCell < 0) return;
+
+		int cell = cellY(e.getY()) * width + cellX(e.getX());
+		if (cell == e.gridCell) return;
+
+		remove(e);
+		insert(e, cell);
+	}
+
+	private void insert(Enemy e, int cell) {
+		if (cells[cell] == null) {
+			cells[cell] = new Enemy[4];
+		} else if (counts[cell] == cells[cell].length) {
+			Enemy[] enemies = new Enemy[cells[cell].length * 2];
+			System.arraycopy(cells[cell], 0, enemies, 0, counts[cell]);
+			cells[cell] = enemies;
+		}
+
+		e.gridCell = cell;
+		e.gridSlot = counts[cell];
+		cells[cell][counts[cell]++] = e;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>query</i></b><br>
+	 * <br>
+	 * {@code public int query(double x, double y, double range, List<Enemy> results)}<br>
+	 * <br>
+	 * Finds every enemy whose center is within <code>range</code> of (<code>x</code>, <code>y</code>), looking only at the cells that overlap that circle.<br>
+	 * @param x The x position of the center of the circle
+	 * @param y The y position of the center of the circle
+	 * @param range The radius of the circle
+	 * @param results The list to put the enemies in. It is cleared first, so that the same list can be reused.
+	 * @return The number of enemies found
+	 *         </ul>
+	 */
+	public int query(double x, double y, double range, List<Enemy> results) {
+		results.clear();
+
+		int x1 = cellX(x - range), x2 = cellX(x + range);
+		int y1 = cellY(y - range), y2 = cellY(y + range);
+
+		double rangeSq = range * range;
+
+		for (int cy = y1; cy <= y2; cy++) {
+			for (int cx = x1; cx <= x2; cx++) {
+				int cell = cy * width + cx;
+				Enemy[] enemies = cells[cell];
+
+				for (int i = 0; i < counts[cell]; i++) {
+					double dx = enemies[i].getX() - x;
+					double dy = enemies[i].getY() - y;
+					if (dx * dx + dy * dy <= rangeSq) results.add(enemies[i]);
+				}
+			}
+		}
+
+		return results.size();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>nearestContaining</i></b><br>
+	 * <br>
+	 * {@code public Enemy nearestContaining(double x, double y)}<br>
+	 * <br>
+	 * Finds the enemy whose rectangle contains the given point and whose center is nearest to it, looking only at the cells that such an enemy could be in.
+	 * Of enemies that are equally near, the one that was created first is returned.<br>
+	 * @param x The x position of the point
+	 * @param y The y position of the point
+	 * @return The enemy, or <code>null</code> if no enemy contains the point
+	 *         </ul>
+	 */
+	public Enemy nearestContaining(double x, double y) {
+		int x1 = cellX(x - reach), x2 = cellX(x + reach);
+		int y1 = cellY(y - reach), y2 = cellY(y + reach);
+
+		Enemy nearest = null;
+		double nearestSq = 0;
+
+		for (int cy = y1; cy <= y2; cy++) {
+			for (int cx = x1; cx <= x2; cx++) {
+				int cell = cy * width + cx;
+				Enemy[] enemies = cells[cell];
+
+				for (int i = 0; i < counts[cell]; i++) {
+					Enemy e = enemies[i];
+					if (!e.contains(x, y)) continue;
+
+					double dx = e.getX() - x;
+					double dy = e.getY() - y;
+					double d = dx * dx + dy * dy;
+					if (nearest == null || d < nearestSq || (d == nearestSq && e.uid < nearest.uid)) {
+						nearest = e;
+						nearestSq = d;
+					}
+				}
+			}
+		}
+
+		return nearest;
+	}
+
+	public void clear() {
+		for (int cell = 0; cell < cells.length; cell++) {
+			for (int i = 0; i < counts[cell]; i++) {
+				cells[cell][i].gridCell = -1;
+				cells[cell][i].gridSlot = -1;
+				cells[cell][i] = null;
+			}
+			counts[cell] = 0;
+		}
+
+		reach = 0;
+	}
+
+}
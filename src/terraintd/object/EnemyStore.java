@@ -0,0 +1,509 @@
+package terraintd.object;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import terraintd.GameLogic;
+import terraintd.pathfinder.FlowField;
+import terraintd.types.EffectType;
+import terraintd.types.StatusEffectType;
+
+/**
+ * Holds the state of many {@link Enemy Enemies} in parallel arrays, with one slot per enemy, so that moving every enemy in a frame walks a few arrays from
+ * front to back instead of visiting objects that are spread out over the heap. An {@link Enemy} is only a handle to its slot.<br>
+ * <br>
+ * The status effects of an enemy are packed into {@link #effects}, which has the same number of places for every slot. They are kept in the order in which
+ * they were inflicted. An effect that has ended is kept in the first free place after the effects of its slot, and is reused by the next effect that is
+ * {@link #inflict(int, Object, EffectType) inflicted} there.<br>
+ * <br>
+ * An enemy that is not in an {@link EntityRegistry} keeps its state in its own fields. Adding it to a registry moves its state into the store of the
+ * registry, and {@link EntityRegistry#compact()} moves it back out once it is removed, so a handle can be used no matter where its state is.<br>
+ * <br>
+ * {@link #move(int, int, byte[], Credits)} only changes the slots that it is given, so separate ranges of slots can be moved on separate threads.
+ */
+public class EnemyStore {
+
+	/**
+	 * What {@link #move(int, int, byte[], Credits)} did with a slot
+	 */
+	public static final byte MOVED = 0, LEAKED = 1, DYING = 2, GONE = 3, REMOVED = 4;
+
+	/**
+	 * <ul>
+	 * <li><b><i>Credits</i></b><br>
+	 * <br>
+	 * {@code public static class Credits}<br>
+	 * <br>
+	 * The damage and kills that status effects were responsible for while enemies were moving. They are only credited to the guns that inflicted the effects by
+	 * {@link #apply()}, so that the statistics of the guns are added up in the same order no matter which thread moved which enemies.
+	 * </ul>
+	 */
+	public static class Credits {
+
+		private StatusEffect[] effects = new StatusEffect[16];
+		private double[] damage = new double[16];
+		private boolean[] kill = new boolean[16];
+		private int length;
+
+		private void add(StatusEffect effect, double damage, boolean kill) {
+			if (length == effects.length) {
+				this.effects = Arrays.copyOf(effects, 2 * length);
+				this.damage = Arrays.copyOf(this.damage, 2 * length);
+				this.kill = Arrays.copyOf(this.kill, 2 * length);
+			}
+
+			this.effects[length] = effect;
+			this.damage[length] = damage;
+			this.kill[length++] = kill;
+		}
+
+		/**
+		 * <ul>
+		 * <li><b><i>apply</i></b><br>
+		 * <br>
+		 * {@code public void apply()}<br>
+		 * <br>
+		 * Credits everything that has been recorded, in the order in which it happened, and empties this list.<br>
+		 * </ul>
+		 */
+		public void apply() {
+			for (int i = 0; i < length; i++) {
+				if (kill[i]) effects[i].registerInflictKill();
+				else effects[i].registerInflictDamage(damage[i]);
+			}
+
+			Arrays.fill(effects, 0, length, null);
+			length = 0;
+		}
+	}
+
+	/**
+	 * The number of status effects that every slot has room for at first. It is doubled whenever an enemy has more effects than that.
+	 */
+	private static final int EFFECT_SLOTS = 4;
+
+	Enemy[] enemies;
+
+	double[] x, y;
+	double[] health;
+	double[] deathTime;
+	int[] dead;
+
+	FlowField[] field, newField;
+
+	/**
+	 * The indices in {@link #field} of the nodes that each enemy is walking between, or <code>-1</code> if there is no next node
+	 */
+	int[] prevNode, nextNode;
+
+	/**
+	 * The random numbers that each enemy uses to pick between paths, so that enemies can be moved in any order
+	 */
+	SplittableRandom[] random;
+
+	/**
+	 * The status effects of slot <code>i</code> are at indices <code>i * effectSlots</code> to <code>i * effectSlots + effectCount[i]</code> (exclusive). The
+	 * rest of the places of the slot are <code>null</code> or hold effects that have ended.
+	 */
+	StatusEffect[] effects;
+	int[] effectCount;
+	private int effectSlots = EFFECT_SLOTS;
+
+	private int length;
+
+	EnemyStore(int capacity) {
+		this.enemies = new Enemy[capacity];
+		this.x = new double[capacity];
+		this.y = new double[capacity];
+		this.health = new double[capacity];
+		this.deathTime = new double[capacity];
+		this.dead = new int[capacity];
+		this.field = new FlowField[capacity];
+		this.newField = new FlowField[capacity];
+		this.prevNode = new int[capacity];
+		this.nextNode = new int[capacity];
+		this.random = new SplittableRandom[capacity];
+		this.effects = new StatusEffect[capacity * effectSlots];
+		this.effectCount = new int[capacity];
+	}
+
+	private void resize(int capacity) {
+		enemies = Arrays.copyOf(enemies, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		health = Arrays.copyOf(health, capacity);
+		deathTime = Arrays.copyOf(deathTime, capacity);
+		dead = Arrays.copyOf(dead, capacity);
+		field = Arrays.copyOf(field, capacity);
+		newField = Arrays.copyOf(newField, capacity);
+		prevNode = Arrays.copyOf(prevNode, capacity);
+		nextNode = Arrays.copyOf(nextNode, capacity);
+		random = Arrays.copyOf(random, capacity);
+		effects = Arrays.copyOf(effects, capacity * effectSlots);
+		effectCount = Arrays.copyOf(effectCount, capacity);
+	}
+
+	/**
+	 * Gives every slot room for at least the given number of status effects
+	 */
+	private void resizeEffects(int min) {
+		int slots = effectSlots;
+		while (slots < min)
+			slots *= 2;
+
+		if (slots == effectSlots) return;
+
+		StatusEffect[] packed = new StatusEffect[enemies.length * slots];
+		for (int i = 0; i < length; i++)
+			System.arraycopy(effects, i * effectSlots, packed, i * slots, effectSlots);
+
+		effects = packed;
+		effectSlots = slots;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>attach</i></b><br>
+	 * <br>
+	 * {@code void attach(Enemy e)}<br>
+	 * <br>
+	 * Moves the state of the given enemy, which must not be in a store, from the handle to a new slot at the end of this store, and points the handle at that
+	 * slot.<br>
+	 * @param e The enemy to move
+	 *        </ul>
+	 */
+	void attach(Enemy e) {
+		if (length == enemies.length) resize(Math.max(1, 2 * length));
+
+		int i = length++;
+		enemies[i] = e;
+		x[i] = e.x;
+		y[i] = e.y;
+		health[i] = e.health;
+		deathTime[i] = e.deathTime;
+		dead[i] = e.dead;
+		field[i] = e.field;
+		newField[i] = null;
+		prevNode[i] = e.prevNode;
+		nextNode[i] = e.nextNode;
+		random[i] = e.random;
+		effectCount[i] = 0;
+
+		e.field = null;
+		e.random = null;
+		e.store = this;
+		e.slot = i;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>detach</i></b><br>
+	 * <br>
+	 * {@code void detach(Enemy e)}<br>
+	 * <br>
+	 * Moves the state of the given enemy, which must be in this store, back to the handle. Its slot is left empty until this store is {@link #compact()
+	 * compacted}, and its status effects are dropped.<br>
+	 * @param e The enemy to move
+	 *        </ul>
+	 */
+	void detach(Enemy e) {
+		int i = e.slot;
+
+		e.x = x[i];
+		e.y = y[i];
+		e.health = health[i];
+		e.deathTime = deathTime[i];
+		e.dead = dead[i];
+		e.field = field[i];
+		e.prevNode = prevNode[i];
+		e.nextNode = nextNode[i];
+		e.random = random[i];
+
+		enemies[i] = null;
+		e.store = null;
+		e.slot = -1;
+	}
+
+	private void copy(int src, int dst) {
+		x[dst] = x[src];
+		y[dst] = y[src];
+		health[dst] = health[src];
+		deathTime[dst] = deathTime[src];
+		dead[dst] = dead[src];
+		field[dst] = field[src];
+		newField[dst] = newField[src];
+		prevNode[dst] = prevNode[src];
+		nextNode[dst] = nextNode[src];
+		random[dst] = random[src];
+
+		// Swapped rather than copied, so that no effect is left in two slots to be reused by both
+		for (int a = src * effectSlots, b = dst * effectSlots, end = a + effectSlots; a < end; a++, b++) {
+			StatusEffect effect = effects[b];
+			effects[b] = effects[a];
+			effects[a] = effect;
+		}
+		effectCount[dst] = effectCount[src];
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>compact</i></b><br>
+	 * <br>
+	 * {@code void compact()}<br>
+	 * <br>
+	 * Moves the slots that are in use to consecutive indices at the front of this store, keeping their order, and updates their handles.<br>
+	 * </ul>
+	 */
+	void compact() {
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			Enemy e = enemies[i];
+			if (e == null) continue;
+
+			if (i != j) {
+				copy(i, j);
+				enemies[j] = e;
+				e.slot = j;
+			}
+			j++;
+		}
+
+		Arrays.fill(enemies, j, length, null);
+		Arrays.fill(field, j, length, null);
+		Arrays.fill(newField, j, length, null);
+		Arrays.fill(random, j, length, null);
+		Arrays.fill(effects, j * effectSlots, length * effectSlots, null);
+		length = j;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>length</i></b><br>
+	 * <br>
+	 * {@code public int length()}<br>
+	 * <br>
+	 * @return The number of slots in this store. In the store of an {@link EntityRegistry}, slot <code>i</code> belongs to the enemy at index <code>i</code> of
+	 *         {@link EntityRegistry#enemies}.
+	 *         </ul>
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>move</i></b><br>
+	 * <br>
+	 * {@code public void move(int from, int to, byte[] results, Credits credits)}<br>
+	 * <br>
+	 * Moves the living enemies in the given range of slots by one frame, and plays one frame of the death of the dead ones. Nothing outside of those slots is
+	 * changed, so the effects on the rest of the game have to be applied afterwards, in order, from <code>results</code> and <code>credits</code>.<br>
+	 * @param from The first slot to move
+	 * @param to The slot after the last one to move
+	 * @param results Gets, for each slot, {@link #MOVED}, {@link #LEAKED} if the enemy reached a goal, {@link #DYING} if it is dead, {@link #GONE} if it has
+	 *        finished dying, or {@link #REMOVED} if it is no longer in the game
+	 * @param credits Gets the damage done by status effects, in the order in which it was done
+	 *        </ul>
+	 */
+	public void move(int from, int to, byte[] results, Credits credits) {
+		for (int i = from; i < to; i++) {
+			if (enemies[i] == null || enemies[i].removed) {
+				results[i] = REMOVED;
+			} else if (dead[i] != 0) {
+				results[i] = (deathTime[i] += GameLogic.FRAME_TIME) >= 1 ? GONE : DYING;
+			} else {
+				results[i] = move(i, credits) ? MOVED : LEAKED;
+			}
+		}
+	}
+
+	private boolean move(int i, Credits credits) {
+		double speedMultiplier = 1;
+
+		int base = i * effectSlots;
+		for (int k = 0; k < effectCount[i];) {
+			StatusEffect effect = effects[base + k];
+			if (effect.fade()) {
+				removeEffect(i, k);
+				continue;
+			}
+			k++;
+
+			switch (effect.getType()) {
+				case FIRE:
+					health[i] -= .125 * effect.getAmplifier() + 1.125;
+					credits.add(effect, .125 * effect.getAmplifier() + 1.125, false);
+					if (health[i] < 0.00001) credits.add(effect, 0, true);
+					break;
+				case FROST:
+					if (effect.getAmplifier() >= 10.999) return true;
+					speedMultiplier *= ((effect.getAmplifier() - 11) * effect.getOrigDuration() + 11 * effect.getDuration()) / ((effect.getAmplifier() - 11) * effect.getOrigDuration());
+					if (speedMultiplier <= 0.001) return true;
+					break;
+				case PARALYSIS:
+					return true;
+				case POISON:
+					double lastHealth = health[i];
+					health[i] = health[i] * (1 - effect.getAmplifier() * 0.0021) - 0.05 * effect.getAmplifier();
+					credits.add(effect, lastHealth - health[i], false);
+					if (health[i] < 0.00001) credits.add(effect, 0, true);
+					break;
+				case SLOWNESS:
+					speedMultiplier *= 1 - 0.09090909 * effect.getAmplifier();
+					break;
+				default:
+					break;
+			}
+		}
+		return move(i, GameLogic.FRAME_TIME, speedMultiplier, credits);
+	}
+
+	private boolean move(int i, double time, double speedMult, Credits credits) {
+		FlowField field = this.field[i];
+		int prevNode = this.prevNode[i], nextNode = this.nextNode[i];
+
+		boolean top = field.isTop(prevNode);
+		int tx = field.getX(prevNode) - (!top && field.getX(prevNode) - field.getX(nextNode) == 1 ? 1 : 0);
+		int ty = field.getY(prevNode) - (top && field.getY(prevNode) - field.getY(nextNode) == 1 ? 1 : 0);
+
+		double speed = speedMult * enemies[i].type.speed.get(GameLogic.getCurrentWorld().tiles[ty][tx].terrain);
+		double distance = speed * time;
+		double d = Math.hypot(x[i] - field.getAbsX(nextNode), y[i] - field.getAbsY(nextNode));
+
+		for (int k = i * effectSlots, end = k + effectCount[i]; k < end; k++) {
+			StatusEffect effect = effects[k];
+			if (effect.getType() == StatusEffectType.BLEED) {
+				health[i] -= 10 * effect.getAmplifier() * distance;
+				credits.add(effect, 10 * effect.getAmplifier() * distance, false);
+				if (health[i] < 0.00001) credits.add(effect, 0, true);
+			}
+		}
+
+		if (distance > d) {
+			x[i] = field.getAbsX(nextNode);
+			y[i] = field.getAbsY(nextNode);
+			this.prevNode[i] = nextNode;
+			this.nextNode[i] = findNextNode(i, nextNode);
+			if (newField[i] != null) resetNodes(i, newField[i]);
+			boolean ret = this.nextNode[i] < 0 ? false : move(i, (distance - d) / speed, speedMult, credits);
+			if (!ret) dead[i] = 2;
+			return ret;
+		}
+
+		double dx = field.getAbsX(nextNode) - field.getAbsX(prevNode);
+		double dy = field.getAbsY(nextNode) - field.getAbsY(prevNode);
+
+		y[i] += dy * distance;
+		x[i] += dx * distance;
+
+		return true;
+	}
+
+	int findNextNode(int i, int node) {
+		return findNextNode(field[i], random[i], node);
+	}
+
+	static int findNextNode(FlowField field, SplittableRandom random, int node) {
+		int count = field.getNextCount(node);
+		if (count == 0) {
+			return -1;
+		} else if (count == 1) {
+			return field.getNext(node, 0);
+		} else {
+			return field.getNext(node, random.nextInt(count));
+		}
+	}
+
+	void resetNodes(int i, FlowField field) {
+		if (this.field[i] == null) this.field[i] = field;
+
+		if (nextNode[i] >= 0) {
+			if (field.isExplored(nextNode[i])) {
+				this.field[i] = field;
+				newField[i] = null;
+			} else if (field.isExplored(prevNode[i])) {
+				this.field[i] = field;
+				nextNode[i] = findNextNode(i, prevNode[i]);
+				x[i] = field.getAbsX(prevNode[i]);
+				y[i] = field.getAbsY(prevNode[i]);
+			} else {
+				newField[i] = field;
+			}
+		}
+	}
+
+	/**
+	 * Adds the given effect after the other effects of slot <code>i</code>, replacing one that is {@link StatusEffect#equals(Object) equal} to it
+	 */
+	void addEffect(int i, StatusEffect effect) {
+		int base = i * effectSlots;
+		for (int k = 0; k < effectCount[i]; k++) {
+			if (effects[base + k].equals(effect)) {
+				removeEffect(i, k);
+				break;
+			}
+		}
+
+		if (effectCount[i] == effectSlots) {
+			resizeEffects(effectSlots + 1);
+			base = i * effectSlots;
+		}
+
+		effects[base + effectCount[i]++] = effect;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>inflict</i></b><br>
+	 * <br>
+	 * {@code void inflict(int i, Object inflictor, EffectType type)}<br>
+	 * <br>
+	 * Does the same as adding a new effect of the given type with {@link #addEffect(int, StatusEffect)}, but reuses the effect that it replaces, or an effect
+	 * of the enemy that has ended, so that hitting an enemy only creates an effect when it has never had that many at once.<br>
+	 * @param i The slot of the enemy
+	 * @param inflictor The entity or instant that inflicted the effect
+	 * @param type The effect to inflict
+	 *        </ul>
+	 */
+	void inflict(int i, Object inflictor, EffectType type) {
+		int base = i * effectSlots;
+		for (int k = 0; k < effectCount[i]; k++) {
+			StatusEffect effect = effects[base + k];
+			if (effect.getType() == type.type && Objects.equals(effect.getInflictor(), inflictor)) {
+				removeEffect(i, k);
+				break;
+			}
+		}
+
+		if (effectCount[i] == effectSlots) {
+			resizeEffects(effectSlots + 1);
+			base = i * effectSlots;
+		}
+
+		int k = base + effectCount[i]++;
+		if (effects[k] == null) effects[k] = new StatusEffect(inflictor, type);
+		else effects[k].reset(inflictor, type);
+	}
+
+	/**
+	 * Removes effect <code>k</code> of slot <code>i</code>, keeping it in the first free place after the others so that it can be reused
+	 */
+	private void removeEffect(int i, int k) {
+		int base = i * effectSlots;
+		int count = --effectCount[i];
+
+		StatusEffect effect = effects[base + k];
+		System.arraycopy(effects, base + k + 1, effects, base + k, count - k);
+		effects[base + count] = effect;
+	}
+
+	StatusEffect getEffect(int i, int k) {
+		return effects[i * effectSlots + k];
+	}
+
+	StatusEffect[] getEffects(int i) {
+		return Arrays.copyOfRange(effects, i * effectSlots, i * effectSlots + effectCount[i]);
+	}
+
+}
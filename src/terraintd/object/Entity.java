@@ -6,6 +6,24 @@ import terraintd.types.IdType;
 
 public abstract class Entity {
 
+	private static int lastUid;
+
+	/**
+	 * <ul>
+	 * <li><b><i>uid</i></b><br><br>
+	 * {@code public final int uid}<br><br>
+	 * A number that is different for every entity created while the game is running. Entities that are created later have larger numbers, so it is also
+	 * used to break ties between otherwise equal entities, and to refer to entities in saved games.
+	 * </ul>
+	 */
+	public final int uid = lastUid++;
+
+	/**
+	 * The registry that this entity is in, and whether it has been removed from one that has not been compacted since
+	 */
+	EntityRegistry registry;
+	boolean removed;
+
 	/**
 	 * <ul>
 	 * <li><b><i>getX</i></b><br><br>
@@ -0,0 +1,225 @@
+package terraintd.object;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Holds the entities of a game, both in one list and in one list per kind of entity, so that code that only cares about enemies, say, does not have to look
+ * at every tower and obstacle.<br>
+ * <br>
+ * Every list keeps the order in which entities were added. Removing an entity only marks it as removed, which takes constant time; removed entities are
+ * skipped by {@link Kind#get(int)} and are dropped from the lists by {@link #compact()}. Because nothing moves until then, a list can be walked by index while
+ * entities are being removed from it.
+ */
+public class EntityRegistry {
+
+	/**
+	 * A list of the entities of one kind. Indices stay the same until {@link EntityRegistry#compact()} is called.
+	 */
+	public class Kind<E> {
+
+		private final Class<E> type;
+
+		private Entity[] elements = new Entity[16];
+		private int length, size;
+
+		private Kind(Class<E> type) {
+			this.type = type;
+		}
+
+		private void add(Entity e) {
+			if (length == elements.length) elements = Arrays.copyOf(elements, length * 2);
+
+			elements[length++] = e;
+			size++;
+		}
+
+		private void compact() {
+			int j = 0;
+			for (int i = 0; i < length; i++) {
+				if (elements[i].registry == EntityRegistry.this) elements[j++] = elements[i];
+			}
+
+			Arrays.fill(elements, j, length, null);
+			length = size = j;
+		}
+
+		/**
+		 * <ul>
+		 * <li><b><i>length</i></b><br>
+		 * <br>
+		 * {@code public int length()}<br>
+		 * <br>
+		 * @return The number of indices in this list, including the ones of entities that have been removed since the last {@link EntityRegistry#compact()}.
+		 *         </ul>
+		 */
+		public int length() {
+			return length;
+		}
+
+		/**
+		 * <ul>
+		 * <li><b><i>size</i></b><br>
+		 * <br>
+		 * {@code public int size()}<br>
+		 * <br>
+		 * @return The number of entities in this list.
+		 *         </ul>
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * <ul>
+		 * <li><b><i>get</i></b><br>
+		 * <br>
+		 * {@code public E get(int index)}<br>
+		 * <br>
+		 * @param index A number from 0 (inclusive) to {@link #length()} (exclusive)
+		 * @return The entity at the given index, or <code>null</code> if it has been removed.
+		 *         </ul>
+		 */
+		public E get(int index) {
+			Entity e = elements[index];
+			return e.registry == EntityRegistry.this ? type.cast(e) : null;
+		}
+
+		/**
+		 * <ul>
+		 * <li><b><i>toArray</i></b><br>
+		 * <br>
+		 * {@code public E[] toArray(IntFunction<E[]> generator)}<br>
+		 * <br>
+		 * @param generator Creates an array of the given length, such as <code>Enemy[]::new</code>
+		 * @return A new array of the entities in this list, in order.
+		 *         </ul>
+		 */
+		public E[] toArray(IntFunction<E[]> generator) {
+			E[] array = generator.apply(size);
+
+			int j = 0;
+			for (int i = 0; i < length; i++) {
+				E e = get(i);
+				if (e != null) array[j++] = e;
+			}
+
+			return array;
+		}
+	}
+
+	/**
+	 * Every entity
+	 */
+	public final Kind<Entity> all = new Kind<>(Entity.class);
+
+	public final Kind<Enemy> enemies = new Kind<>(Enemy.class);
+
+	/**
+	 * The entities that have a {@link Gun}, which are towers and enemies
+	 */
+	public final Kind<Weapon> weapons = new Kind<>(Weapon.class);
+
+	/**
+	 * The entities that block paths, which are towers and obstacles
+	 */
+	public final Kind<CollidableEntity> collidables = new Kind<>(CollidableEntity.class);
+
+	public final Kind<Instant> instants = new Kind<>(Instant.class);
+
+	/**
+	 * The state of the enemies, in the same order as {@link #enemies}
+	 */
+	public final EnemyStore enemyStore = new EnemyStore(16);
+
+	private boolean dirty = false;
+
+	/**
+	 * <ul>
+	 * <li><b><i>add</i></b><br>
+	 * <br>
+	 * {@code public void add(Entity e)}<br>
+	 * <br>
+	 * Adds the given entity to the end of {@link #all} and of the list of each kind that it belongs to.<br>
+	 * @param e The entity to add
+	 * @throws IllegalStateException If the entity is in a registry, or has been removed from this one since the last {@link #compact()}
+	 *         </ul>
+	 */
+	public void add(Entity e) {
+		if (e.registry != null || e.removed) throw new IllegalStateException("Entity is already registered");
+
+		e.registry = this;
+
+		all.add(e);
+		if (e instanceof Enemy) {
+			enemies.add(e);
+			enemyStore.attach((Enemy) e);
+		}
+		if (e instanceof Weapon) weapons.add(e);
+		if (e instanceof CollidableEntity) collidables.add(e);
+		if (e instanceof Instant) instants.add(e);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>remove</i></b><br>
+	 * <br>
+	 * {@code public boolean remove(Entity e)}<br>
+	 * <br>
+	 * Removes the given entity. It keeps its indices until the next {@link #compact()}, but {@link Kind#get(int)} returns <code>null</code> for them.<br>
+	 * @param e The entity to remove
+	 * @return <code>true</code> if the entity was in this registry
+	 *         </ul>
+	 */
+	public boolean remove(Entity e) {
+		if (e.registry != this) return false;
+
+		e.registry = null;
+		e.removed = true;
+		dirty = true;
+
+		all.size--;
+		if (e instanceof Enemy) enemies.size--;
+		if (e instanceof Weapon) weapons.size--;
+		if (e instanceof CollidableEntity) collidables.size--;
+		if (e instanceof Instant) instants.size--;
+
+		return true;
+	}
+
+	public boolean contains(Entity e) {
+		return e != null && e.registry == this;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>compact</i></b><br>
+	 * <br>
+	 * {@code public void compact()}<br>
+	 * <br>
+	 * Drops the entities that have been removed from every list, so that the remaining ones are at consecutive indices. The state of removed enemies is moved
+	 * out of the {@link EnemyStore} of this registry. This takes time proportional to the number of indices, so it should be called at most once per frame, and
+	 * never while a list is being walked.<br>
+	 * </ul>
+	 */
+	public void compact() {
+		if (!dirty) return;
+
+		for (int i = 0; i < all.length; i++) {
+			Entity e = all.elements[i];
+			if (e.registry == this) continue;
+
+			e.removed = false;
+			if (e instanceof Enemy) enemyStore.detach((Enemy) e);
+		}
+
+		all.compact();
+		enemies.compact();
+		enemyStore.compact();
+		weapons.compact();
+		collidables.compact();
+		instants.compact();
+
+		dirty = false;
+	}
+}
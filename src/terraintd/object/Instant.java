@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import terraintd.GameLogic;
 import terraintd.types.InstantType;
@@ -17,10 +18,13 @@ public class Instant extends Entity {
 
 	private List<Repetition> repetitions;
 
+	private final SplittableRandom random;
+
 	public Instant(InstantType type, double x, double y) {
 		this.type = type;
 		this.x = x;
 		this.y = y;
+		this.random = GameLogic.random.split();
 
 		this.repetitions = new ArrayList<>();
 		for (int i = 0; i < type.count; i++) {
@@ -87,26 +91,26 @@ public class Instant extends Entity {
 			for (int i = 0; i < times.length; i++) {
 				if (times[i] <= Integer.MIN_VALUE) continue;
 
-				Point2D sp = randomPoint(type.spread);
+				Point2D sp = randomPoint(random, type.spread);
 				final double sx = x + sp.getX();
 				final double sy = y + sp.getY();
 
 				Entity[] targets;
 				switch (type.target) {
 					case ENEMY:
-						targets = Arrays.stream(GameLogic.getEntities()).filter(e -> e instanceof Enemy && GameLogic.distanceSq(e.getX(), x, e.getY(), y) < type.range * type.range && ((Enemy) e).getFutureHealth() >= 0 && (!type.unique || !targeted.contains(e))).sorted(new Comparator<Entity>() {
+						targets = Arrays.stream(GameLogic.getEnemiesInRange(x, y, type.range)).filter(e -> GameLogic.distanceSq(e.getX(), x, e.getY(), y) < type.range * type.range && e.getFutureHealth() >= 0 && (!type.unique || !targeted.contains(e))).sorted(new Comparator<Entity>() {
 
 							@Override
 							public int compare(Entity o1, Entity o2) {
-								return Double.compare(((Enemy) o1).getNextNode().getCost(), ((Enemy) o2).getNextNode().getCost());
+								return Double.compare(((Enemy) o1).getNextCost(), ((Enemy) o2).getNextCost());
 							}
 						}).toArray(size -> new Entity[size]);
 						break;
 					case LOCATION:
-						targets = new Entity[] {new Position(randomPoint(type.range))};
+						targets = new Entity[] {new Position(randomPoint(random, type.range))};
 						break;
 					case ROTATION:
-						double t = 2 * Math.PI * GameLogic.rand.nextDouble();
+						double t = 2 * Math.PI * random.nextDouble();
 						targets = new Entity[] {new Position(type.range * Math.cos(t), type.range * Math.sin(t))};
 						break;
 					case SPREAD:
@@ -127,7 +131,7 @@ public class Instant extends Entity {
 				times[i] += GameLogic.FRAME_TIME;
 				if (times[i] > 0) {
 					times[i] = Integer.MIN_VALUE;
-					projectiles.add(new Projectile(type.projectiles[i], Instant.this, targets[0], sx, sy));
+					projectiles.add(GameLogic.projectilePool.obtain(type.projectiles[i], Instant.this, targets[0], sx, sy));
 					targeted.add(targets[0]);
 				}
 			}
@@ -142,15 +146,16 @@ public class Instant extends Entity {
 	 * <ul>
 	 * <li><b><i>randomPoint</i></b><br>
 	 * <br>
-	 * {@code Point2D randomPoint()}<br>
+	 * {@code public static Point2D randomPoint(SplittableRandom random, double radius)}<br>
 	 * <br>
+	 * @param random - The stream to draw from.
 	 * @param radius - The radius to generate points within.
 	 * @return A pseudo-random point within a circle centered at the origin with the given radius.
 	 *         </ul>
 	 */
-	public static Point2D randomPoint(double radius) {
-		double t = GameLogic.rand.nextDouble() * Math.PI * 2;
-		double r = (GameLogic.rand.nextDouble() + GameLogic.rand.nextDouble()) * radius;
+	public static Point2D randomPoint(SplittableRandom random, double radius) {
+		double t = random.nextDouble() * Math.PI * 2;
+		double r = (random.nextDouble() + random.nextDouble()) * radius;
 		if (r > radius) r = radius * 2 - r;
 
 		return new Point2D.Double(r * Math.cos(t), r * Math.sin(t));
@@ -7,22 +7,38 @@ import terraintd.GameLogic;
 import terraintd.types.DeliveryType;
 import terraintd.types.ProjectileType;
 
+/**
+ * A projectile that has been fired. Projectiles are reused by a {@link ProjectilePool} once they are no longer in flight, so their fields only stay the same
+ * until then.
+ */
 public class Projectile {
 
-	public final ProjectileType type;
-	public final Weapon shootingEntity;
-	public final Instant instant;
-	public final double startX, startY;
+	private ProjectileType type;
+	private Weapon shootingEntity;
+	private Instant instant;
+	private double startX, startY;
 	private double x, y;
 	private double rotation;
 	private double radius;
 	private double deathTime;
 
-	private final Entity target;
-	public final double targetX, targetY;
+	private Entity target;
+	private double targetX, targetY;
 	private final List<Enemy> hitTargets;
 
 	public <E extends Entity & Weapon> Projectile(ProjectileType type, E shootingEntity) {
+		this.hitTargets = new ArrayList<>();
+
+		init(type, shootingEntity);
+	}
+
+	public Projectile(ProjectileType type, Instant instant, Entity target, double x, double y) {
+		this.hitTargets = new ArrayList<>();
+
+		init(type, instant, target, x, y);
+	}
+
+	<E extends Entity & Weapon> void init(ProjectileType type, E shootingEntity) {
 		this.type = type;
 		this.startX = shootingEntity.getGun().shooter.getX();
 		this.startY = shootingEntity.getGun().shooter.getY();
@@ -40,12 +56,12 @@ public class Projectile {
 		targetX = type.delivery == DeliveryType.SINGLE_TARGET && !type.follow ? this.target.getX() : 0;
 		targetY = type.delivery == DeliveryType.SINGLE_TARGET && !type.follow ? this.target.getY() : 0;
 
-		this.hitTargets = new ArrayList<>();
+		this.radius = 0;
 
 		this.shootingEntity.getGun().registerProjectile();
 	}
 
-	public Projectile(ProjectileType type, Instant instant, Entity target, double x, double y) {
+	void init(ProjectileType type, Instant instant, Entity target, double x, double y) {
 		this.type = type;
 		this.startX = type.delivery != DeliveryType.SINGLE_TARGET || instant.type.individual ? x : instant.x;
 		this.startY = type.delivery != DeliveryType.SINGLE_TARGET || instant.type.individual ? y : instant.y;
@@ -63,7 +79,20 @@ public class Projectile {
 		targetX = type.delivery == DeliveryType.SINGLE_TARGET && !type.follow ? this.target.getX() : 0;
 		targetY = type.delivery == DeliveryType.SINGLE_TARGET && !type.follow ? this.target.getY() : 0;
 
-		this.hitTargets = new ArrayList<>();
+		this.radius = 0;
+	}
+
+	/**
+	 * Takes this projectile out of the future damage of its target, and forgets every entity it refers to, for when it is {@link ProjectilePool#release(Projectile)
+	 * released}.
+	 */
+	void clear() {
+		if (this.target instanceof Enemy) ((Enemy) this.target).futureDamage.remove(this);
+
+		this.hitTargets.clear();
+		this.target = null;
+		this.shootingEntity = null;
+		this.instant = null;
 	}
 
 	/**
@@ -153,11 +182,40 @@ public class Projectile {
 	 *         </ul>
 	 */
 	public double damageForEntity(Entity e) {
-		double d = Math.hypot(e.getX() - startX, e.getY() - startY) / this.type.maxDist;
+		double dx = e.getX() - startX, dy = e.getY() - startY;
+		double d = Math.sqrt(dx * dx + dy * dy) / this.type.maxDist;
 
 		return this.type.maxDamage * (1 - d) + this.type.minDamage * d;
 	}
 
+	public ProjectileType getType() {
+		return type;
+	}
+
+	public Weapon getShootingEntity() {
+		return shootingEntity;
+	}
+
+	public Instant getInstant() {
+		return instant;
+	}
+
+	public double getStartX() {
+		return startX;
+	}
+
+	public double getStartY() {
+		return startY;
+	}
+
+	public double getTargetX() {
+		return targetX;
+	}
+
+	public double getTargetY() {
+		return targetY;
+	}
+
 	public double getX() {
 		return x;
 	}
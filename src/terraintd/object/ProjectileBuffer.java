@@ -0,0 +1,167 @@
+package terraintd.object;
+
+import java.util.Arrays;
+
+/**
+ * Holds the projectiles that are in flight, in the order they were fired.<br>
+ * <br>
+ * Removing a projectile only empties its index, which takes constant time. {@link #get(int)} returns <code>null</code> for the emptied indices until
+ * {@link #compact()} closes the gaps, so the buffer can be walked by index while projectiles are being removed from it.<br>
+ * <br>
+ * The projectiles can also be read through {@link #view()}, an array that only changes when {@link #publish()} is called, so that painting them does not
+ * need a copy of its own. Only the array is kept between publishes, not the state of the projectiles in it: they keep moving every frame, and are reused for
+ * new shots once they are released to the {@link ProjectilePool}. <b>The view may only be read on the thread that calls {@link #publish()}</b>, between
+ * frames. In the game, that is the event dispatch thread, which runs the frames on a Swing timer and also paints them.
+ */
+public class ProjectileBuffer {
+
+	private Projectile[] elements = new Projectile[16];
+	private int length, size;
+
+	private Projectile[] back = new Projectile[16];
+	private volatile Projectile[] front = new Projectile[16];
+
+	public void add(Projectile p) {
+		if (length == elements.length) elements = Arrays.copyOf(elements, length * 2);
+
+		elements[length++] = p;
+		size++;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>remove</i></b><br>
+	 * <br>
+	 * {@code public Projectile remove(int index)}<br>
+	 * <br>
+	 * Removes the projectile at the given index. The index stays empty until the next {@link #compact()}.<br>
+	 * @param index A number from 0 (inclusive) to {@link #length()} (exclusive)
+	 * @return The projectile that was removed, or <code>null</code> if the index was already empty
+	 *         </ul>
+	 */
+	public Projectile remove(int index) {
+		Projectile p = elements[index];
+		if (p == null) return null;
+
+		elements[index] = null;
+		size--;
+
+		return p;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>compact</i></b><br>
+	 * <br>
+	 * {@code public void compact()}<br>
+	 * <br>
+	 * Moves the remaining projectiles together, in order, so that they are at consecutive indices again.<br>
+	 *        </ul>
+	 */
+	public void compact() {
+		if (size == length) return;
+
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			if (elements[i] != null) elements[j++] = elements[i];
+		}
+
+		Arrays.fill(elements, j, length, null);
+		length = size = j;
+	}
+
+	public void clear() {
+		Arrays.fill(elements, 0, length, null);
+		length = size = 0;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>length</i></b><br>
+	 * <br>
+	 * {@code public int length()}<br>
+	 * <br>
+	 * @return The number of indices in this buffer, including the ones that have been emptied since the last {@link #compact()}.
+	 *         </ul>
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return The number of projectiles in this buffer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>get</i></b><br>
+	 * <br>
+	 * {@code public Projectile get(int index)}<br>
+	 * <br>
+	 * @param index A number from 0 (inclusive) to {@link #length()} (exclusive)
+	 * @return The projectile at the given index, or <code>null</code> if it has been removed.
+	 *         </ul>
+	 */
+	public Projectile get(int index) {
+		return elements[index];
+	}
+
+	/**
+	 * @return A new array of the projectiles in this buffer, in order.
+	 */
+	public Projectile[] toArray() {
+		Projectile[] array = new Projectile[size];
+
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			if (elements[i] != null) array[j++] = elements[i];
+		}
+
+		return array;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>publish</i></b><br>
+	 * <br>
+	 * {@code public void publish()}<br>
+	 * <br>
+	 * Makes {@link #view()} return the projectiles that are in this buffer now.<br>
+	 *        </ul>
+	 */
+	public void publish() {
+		Projectile[] view = back;
+		if (view.length <= size) view = new Projectile[Math.max(size + 1, view.length * 2)];
+
+		int j = 0;
+		for (int i = 0; i < length; i++) {
+			if (elements[i] != null) view[j++] = elements[i];
+		}
+
+		// Everything after the last projectile is null, as view() promises
+		for (; j < view.length && view[j] != null; j++)
+			view[j] = null;
+
+		back = front;
+		front = view;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>view</i></b><br>
+	 * <br>
+	 * {@code public Projectile[] view()}<br>
+	 * <br>
+	 * @return The projectiles as of the last {@link #publish()}, in order, followed by <code>null</code>s up to the end of the array. The array must not be
+	 *         changed, and should be read as soon as it is returned, on the thread that calls <code>publish()</code>: it is filled again by the second
+	 *         <code>publish()</code> after the one that made it, and the projectiles in it change with every frame.
+	 *         </ul>
+	 */
+	public Projectile[] view() {
+		return front;
+	}
+
+}
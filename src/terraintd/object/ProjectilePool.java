@@ -0,0 +1,125 @@
+package terraintd.object;
+
+import terraintd.types.ProjectileType;
+
+/**
+ * Keeps the {@link Projectile Projectiles} that are no longer in flight, so that new ones can reuse them instead of being created. Once the pool has grown to
+ * the most projectiles that have been in flight at once, firing creates no more of them.<br>
+ * <br>
+ * The pool never holds more projectiles than that peak, and never more than {@link #MAX_SIZE}. A projectile that is released when the pool is full is left
+ * to the garbage collector.
+ */
+public class ProjectilePool {
+
+	public static final int MAX_SIZE = 4096;
+
+	private Projectile[] free = new Projectile[16];
+	private int size;
+
+	/**
+	 * The number of projectiles that have been obtained and not released, and the most there have been at once
+	 */
+	private int live, peak;
+
+	/**
+	 * <ul>
+	 * <li><b><i>obtain</i></b><br>
+	 * <br>
+	 * {@code public <E extends Entity & Weapon> Projectile obtain(ProjectileType type, E shootingEntity)}<br>
+	 * <br>
+	 * Does the same as {@link Projectile#Projectile(ProjectileType, Entity) new Projectile(type, shootingEntity)}, reusing a released projectile if there
+	 * is one.<br>
+	 * @param type The type of the projectile
+	 * @param shootingEntity The entity that fired the projectile
+	 * @return A projectile that has just been fired
+	 *         </ul>
+	 */
+	public <E extends Entity & Weapon> Projectile obtain(ProjectileType type, E shootingEntity) {
+		count();
+
+		if (size == 0) return new Projectile(type, shootingEntity);
+
+		Projectile p = free[--size];
+		free[size] = null;
+		p.init(type, shootingEntity);
+		return p;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>obtain</i></b><br>
+	 * <br>
+	 * {@code public Projectile obtain(ProjectileType type, Instant instant, Entity target, double x, double y)}<br>
+	 * <br>
+	 * Does the same as {@link Projectile#Projectile(ProjectileType, Instant, Entity, double, double) new Projectile(type, instant, target, x, y)}, reusing a
+	 * released projectile if there is one.<br>
+	 * @return A projectile that has just been fired
+	 *         </ul>
+	 */
+	public Projectile obtain(ProjectileType type, Instant instant, Entity target, double x, double y) {
+		count();
+
+		if (size == 0) return new Projectile(type, instant, target, x, y);
+
+		Projectile p = free[--size];
+		free[size] = null;
+		p.init(type, instant, target, x, y);
+		return p;
+	}
+
+	private void count() {
+		if (++live > peak) peak = live;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>release</i></b><br>
+	 * <br>
+	 * {@code public void release(Projectile p)}<br>
+	 * <br>
+	 * Takes back a projectile that is no longer in flight. It is taken out of the future damage of its target, and forgets the entities it refers to, so that
+	 * the pool does not keep them alive.<br>
+	 * <b>Nothing may use the projectile after it has been released</b>, since it may be fired again at any time.<br>
+	 * @param p The projectile
+	 *        </ul>
+	 */
+	public void release(Projectile p) {
+		if (live > 0) live--;
+
+		p.clear();
+
+		if (size >= Math.min(peak, MAX_SIZE)) return;
+
+		if (size == free.length) {
+			Projectile[] ps = new Projectile[Math.min(free.length * 2, MAX_SIZE)];
+			System.arraycopy(free, 0, ps, 0, size);
+			free = ps;
+		}
+
+		free[size++] = p;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>clear</i></b><br>
+	 * <br>
+	 * {@code public void clear()}<br>
+	 * <br>
+	 * Empties the pool and forgets the peak, for when a new game is started.<br>
+	 *        </ul>
+	 */
+	public void clear() {
+		for (int i = 0; i < size; i++)
+			free[i] = null;
+
+		size = live = peak = 0;
+	}
+
+	/**
+	 * @return The number of projectiles that are waiting to be reused
+	 */
+	public int size() {
+		return size;
+	}
+
+}
@@ -7,9 +7,9 @@ import terraintd.types.StatusEffectType;
 
 public class StatusEffect {
 
-	public final Object inflictor;
-	public final StatusEffectType type;
-	public final double origDuration, amplifier;
+	private Object inflictor;
+	private StatusEffectType type;
+	private double origDuration, amplifier;
 	private double duration;
 
 	public StatusEffect(Object inflictor, StatusEffectType type, double amplifier, double duration) {
@@ -20,7 +20,18 @@ public class StatusEffect {
 	}
 
 	public StatusEffect(Object inflictor, EffectType type) {
-		this(inflictor, type.type, type.amplifier, type.duration);
+		reset(inflictor, type);
+	}
+
+	/**
+	 * Makes this effect the same as {@link #StatusEffect(Object, EffectType) new StatusEffect(inflictor, type)}, for when an {@link EnemyStore} reuses it. No
+	 * other code changes an effect once it has been created.
+	 */
+	void reset(Object inflictor, EffectType type) {
+		this.inflictor = inflictor;
+		this.type = type.type;
+		this.amplifier = type.amplifier;
+		this.origDuration = this.duration = type.duration;
 	}
 
 	/**
@@ -39,10 +50,26 @@ public class StatusEffect {
 		return this.duration <= 0;
 	}
 
+	public Object getInflictor() {
+		return inflictor;
+	}
+
+	public StatusEffectType getType() {
+		return type;
+	}
+
+	public double getAmplifier() {
+		return amplifier;
+	}
+
+	public double getOrigDuration() {
+		return origDuration;
+	}
+
 	public double getDuration() {
 		return duration;
 	}
-	
+
 	public void registerInflictDamage(double damage) {
 		if (this.inflictor instanceof Weapon) ((Weapon) this.inflictor).getGun().registerDamage(damage);
 	}
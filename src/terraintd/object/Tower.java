@@ -96,7 +96,7 @@ public class Tower extends CollidableEntity implements Weapon {
 		Projectile[] ps = new Projectile[types.length];
 
 		for (int n = 0; n < types.length; n++)
-			ps[n] = new Projectile(types[n], this);
+			ps[n] = GameLogic.projectilePool.obtain(types[n], this);
 
 		return ps;
 	}
@@ -0,0 +1,278 @@
+package terraintd.pathfinder;
+
+import java.util.BitSet;
+
+import terraintd.types.World;
+
+/**
+ * The paths calculated by the {@link PathFinder} for one kind of enemy, stored as flat arrays indexed by node.<br>
+ * <br>
+ * There are two nodes for each corner of the world's grid: one on the top side of the tile to its lower right and one on the left side. A node's index is
+ * <code>2 * (y * width + x)</code> plus one if it is on top. Each node has up to six neighbors, numbered as in {@link #getNeighbor(int, int)}, and the neighbors
+ * that lie on a shortest path to a goal are stored as a bitmask of those numbers.
+ */
+public class FlowField {
+
+	/**
+	 * The number of nodes in each row and column, i.e. one more than the width and height of the world
+	 */
+	public final int width, height;
+
+	final double[] cost;
+	final byte[] next;
+	final BitSet closed;
+	final BitSet explored;
+
+	public FlowField(World world) {
+		this.width = world.getWidth() + 1;
+		this.height = world.getHeight() + 1;
+
+		this.cost = new double[2 * width * height];
+		this.next = new byte[cost.length];
+		this.closed = new BitSet(cost.length);
+		this.explored = new BitSet(cost.length);
+	}
+
+	public int size() {
+		return cost.length;
+	}
+
+	public int getIndex(int x, int y, boolean top) {
+		return getIndex(width, x, y, top);
+	}
+
+	public int getIndex(Node node) {
+		return getIndex(width, node.x, node.y, node.top);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getIndex</i></b><br>
+	 * <br>
+	 * {@code public static int getIndex(World world, Node node)}<br>
+	 * <br>
+	 * @return The index of the given node in any flow field of the given world.
+	 *         </ul>
+	 */
+	public static int getIndex(World world, Node node) {
+		return getIndex(world.getWidth() + 1, node.x, node.y, node.top);
+	}
+
+	private static int getIndex(int width, int x, int y, boolean top) {
+		return 2 * (y * width + x) + (top ? 1 : 0);
+	}
+
+	public int getX(int node) {
+		return (node >> 1) % width;
+	}
+
+	public int getY(int node) {
+		return (node >> 1) / width;
+	}
+
+	public boolean isTop(int node) {
+		return (node & 1) == 1;
+	}
+
+	public double getAbsX(int node) {
+		return getX(node) + (isTop(node) ? 0.5 : 0);
+	}
+
+	public double getAbsY(int node) {
+		return getY(node) + (isTop(node) ? 0 : 0.5);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getNode</i></b><br>
+	 * <br>
+	 * {@code public Node getNode(int node)}<br>
+	 * <br>
+	 * @return A new {@link Node} with the position of the node at the given index, or <code>null</code> if the index is negative.
+	 *         </ul>
+	 */
+	public Node getNode(int node) {
+		return node < 0 ? null : new Node(getX(node), getY(node), isTop(node));
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getCost</i></b><br>
+	 * <br>
+	 * {@code public double getCost(int node)}<br>
+	 * <br>
+	 * @return The time it takes to get from the given node to the nearest goal.
+	 *         </ul>
+	 */
+	public double getCost(int node) {
+		return cost[node];
+	}
+
+	public boolean isExplored(int node) {
+		return explored.get(node);
+	}
+
+	public boolean isBlocked(int node) {
+		return closed.get(node) && !explored.get(node);
+	}
+
+	boolean isClosed(int node) {
+		return closed.get(node);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getNextCount</i></b><br>
+	 * <br>
+	 * {@code public int getNextCount(int node)}<br>
+	 * <br>
+	 * @return The number of neighbors of the given node that lie on a shortest path to a goal.
+	 *         </ul>
+	 */
+	public int getNextCount(int node) {
+		return Integer.bitCount(next[node] & 0xFF);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getNext</i></b><br>
+	 * <br>
+	 * {@code public int getNext(int node, int n)}<br>
+	 * <br>
+	 * @param node The index of a node
+	 * @param n A number from 0 (inclusive) to {@link #getNextCount(int) getNextCount(node)} (exclusive)
+	 * @return The index of the <code>n</code>th neighbor of the given node that lies on a shortest path to a goal.
+	 *         </ul>
+	 */
+	public int getNext(int node, int n) {
+		int mask = next[node] & 0xFF;
+		for (int i = 0; i < n; i++)
+			mask &= mask - 1;
+
+		return getNeighbor(node, Integer.numberOfTrailingZeros(mask));
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getNeighbor</i></b><br>
+	 * <br>
+	 * {@code public int getNeighbor(int node, int slot)}<br>
+	 * <br>
+	 * Finds one of the six neighbors of a node. For a node on top of a tile, these are the top and left nodes of the tile above it, the left node of the tile
+	 * to the upper right, the top node of the tile below it, and its own tile's left node and right neighbor's left node. Nodes on the left side of a tile are
+	 * numbered the same way, turned on their side.<br>
+	 * @param node The index of a node
+	 * @param slot A number from 0 to 5
+	 * @return The index of the neighbor, or <code>-1</code> if it would be outside the world.
+	 *         </ul>
+	 */
+	public int getNeighbor(int node, int slot) {
+		int x = getX(node), y = getY(node);
+
+		if (isTop(node)) {
+			switch (slot) {
+				case 0:
+					return y != 0 ? getIndex(x, y - 1, true) : -1;
+				case 1:
+					return y != 0 ? getIndex(x, y - 1, false) : -1;
+				case 2:
+					return y != 0 && x != width - 1 ? getIndex(x + 1, y - 1, false) : -1;
+				case 3:
+					return y != height - 1 ? getIndex(x, y + 1, true) : -1;
+				case 4:
+					return y != height - 1 ? getIndex(x, y, false) : -1;
+				case 5:
+					return y != height - 1 && x != width - 1 ? getIndex(x + 1, y, false) : -1;
+			}
+		} else {
+			switch (slot) {
+				case 0:
+					return x != 0 ? getIndex(x - 1, y, false) : -1;
+				case 1:
+					return x != 0 ? getIndex(x - 1, y, true) : -1;
+				case 2:
+					return x != 0 && y != height - 1 ? getIndex(x - 1, y + 1, true) : -1;
+				case 3:
+					return x != width - 1 ? getIndex(x + 1, y, false) : -1;
+				case 4:
+					return x != width - 1 ? getIndex(x, y, true) : -1;
+				case 5:
+					return x != width - 1 && y != height - 1 ? getIndex(x, y + 1, true) : -1;
+			}
+		}
+
+		return -1;
+	}
+
+	private int getSlot(int node, int neighbor) {
+		for (int slot = 0; slot < 6; slot++) {
+			if (getNeighbor(node, slot) == neighbor) return slot;
+		}
+
+		return -1;
+	}
+
+	boolean hasNext(int node) {
+		return next[node] != 0;
+	}
+
+	boolean hasNext(int node, int neighbor) {
+		int slot = getSlot(node, neighbor);
+		return slot >= 0 && (next[node] & (1 << slot)) != 0;
+	}
+
+	void addNext(int node, int neighbor) {
+		next[node] |= 1 << getSlot(node, neighbor);
+	}
+
+	void setNext(int node, int neighbor) {
+		next[node] = (byte) (1 << getSlot(node, neighbor));
+	}
+
+	boolean removeNext(int node, int neighbor) {
+		int slot = getSlot(node, neighbor);
+		if (slot < 0 || (next[node] & (1 << slot)) == 0) return false;
+
+		next[node] &= ~(1 << slot);
+		return true;
+	}
+
+	void clearNext(int node) {
+		next[node] = 0;
+	}
+
+	void close(int node) {
+		closed.set(node);
+	}
+
+	void explore(int node) {
+		closed.set(node);
+		explored.set(node);
+	}
+
+	/**
+	 * Blocks the given node, but keeps its successors
+	 */
+	void block(int node) {
+		closed.set(node);
+		explored.clear(node);
+	}
+
+	/**
+	 * Lets the given node be explored again, keeping its cost and successors
+	 */
+	void open(int node) {
+		closed.clear(node);
+		explored.clear(node);
+	}
+
+	/**
+	 * Returns the given node to the state that it had before any paths were calculated
+	 */
+	void reset(int node) {
+		open(node);
+		cost[node] = 0;
+		next[node] = 0;
+	}
+
+}
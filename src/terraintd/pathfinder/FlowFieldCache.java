@@ -0,0 +1,145 @@
+package terraintd.pathfinder;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import terraintd.object.CollidableEntity;
+import terraintd.object.Entity;
+import terraintd.types.EnemyType;
+import terraintd.types.Terrain;
+import terraintd.types.World;
+
+/**
+ * Holds the flow fields calculated by the {@link PathFinder} for every {@link EnemyType}. Enemy types that move at the same speed over every {@link Terrain} share
+ * the same field, so each distinct speed profile is only calculated and repaired once.<br>
+ * <br>
+ * Distinct profiles do not depend on each other, so they are calculated and repaired in parallel on a dedicated pool. The new fields are only published once every
+ * profile is done.
+ */
+public class FlowFieldCache {
+
+	private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	private HashMap<Map<Terrain, Double>, FlowField> fields = new HashMap<>();
+	private volatile Map<EnemyType, FlowField> types = new HashMap<>();
+
+	private World world;
+	private final Set<Rectangle2D> footprints = new HashSet<>();
+
+	public FlowField get(EnemyType type) {
+		return types.get(type);
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>calculate</i></b><br>
+	 * <br>
+	 * {@code public void calculate(EnemyType[] types, Entity[] entities, World world)}<br>
+	 * <br>
+	 * Calculates the field for each of the given types. If the world and the obstacles are the same as last time, the fields that were already calculated are
+	 * kept.<br>
+	 * @param types The types of enemies to calculate fields for
+	 * @param entities The entities in the game
+	 * @param world The world to calculate fields in
+	 *        </ul>
+	 */
+	public void calculate(EnemyType[] types, Entity[] entities, World world) {
+		Set<Rectangle2D> footprints = new HashSet<>();
+		for (Entity e : entities) {
+			if (e instanceof CollidableEntity) footprints.add(e.getRectangle());
+		}
+
+		HashMap<Map<Terrain, Double>, FlowField> fields = new HashMap<>();
+		if (world == this.world && footprints.equals(this.footprints)) fields.putAll(this.fields);
+
+		HashMap<Map<Terrain, Double>, EnemyType> missing = new HashMap<>();
+		for (EnemyType type : types) {
+			Map<Terrain, Double> profile = getSpeedProfile(type);
+			if (!fields.containsKey(profile)) missing.putIfAbsent(profile, type);
+		}
+
+		HashMap<Map<Terrain, Double>, ForkJoinTask<FlowField>> tasks = new HashMap<>();
+		for (Map<Terrain, Double> profile : missing.keySet()) {
+			EnemyType type = missing.get(profile);
+			tasks.put(profile, pool.submit(() -> PathFinder.calculatePaths(type, entities, world)));
+		}
+
+		for (Map<Terrain, Double> profile : tasks.keySet())
+			fields.put(profile, tasks.get(profile).join());
+
+		HashMap<EnemyType, FlowField> typeFields = new HashMap<>();
+		for (EnemyType type : types)
+			typeFields.put(type, fields.get(getSpeedProfile(type)));
+
+		this.world = world;
+		this.footprints.clear();
+		this.footprints.addAll(footprints);
+		this.fields = fields;
+		this.types = typeFields;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>repair</i></b><br>
+	 * <br>
+	 * {@code public void repair(CollidableEntity changed, boolean placed, Entity[] entities)}<br>
+	 * <br>
+	 * Repairs every distinct field after <code>changed</code> has been placed or removed. See
+	 * {@link PathFinder#repairPaths(EnemyType, FlowField, CollidableEntity, boolean, Entity[], World)}.<br>
+	 * @param changed The entity that was placed or removed
+	 * @param placed <code>true</code> if <code>changed</code> was placed, <code>false</code> if it was removed
+	 * @param entities The entities in the game after the change
+	 *        </ul>
+	 */
+	public void repair(CollidableEntity changed, boolean placed, Entity[] entities) {
+		if (placed) {
+			footprints.add(changed.getRectangle());
+		} else {
+			footprints.remove(changed.getRectangle());
+		}
+
+		Set<FlowField> repaired = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+		Map<EnemyType, FlowField> types = this.types;
+		for (EnemyType type : types.keySet()) {
+			FlowField field = types.get(type);
+			if (repaired.add(field)) tasks.add(pool.submit(() -> PathFinder.repairPaths(type, field, changed, placed, entities, world)));
+		}
+
+		for (ForkJoinTask<?> task : tasks)
+			task.join();
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getSpeedProfile</i></b><br>
+	 * <br>
+	 * {@code static Map<Terrain, Double> getSpeedProfile(EnemyType type)}<br>
+	 * <br>
+	 * @return The speed of the given type on each terrain, with every speed that the path finder treats as impassable set to 0.
+	 *         </ul>
+	 */
+	static Map<Terrain, Double> getSpeedProfile(EnemyType type) {
+		EnumMap<Terrain, Double> profile = new EnumMap<>(Terrain.class);
+
+		// TypeGenerator only puts numbers in speed maps, so no speed is null
+		for (Map.Entry<Terrain, Double> entry : type.speed.entrySet()) {
+			double speed = entry.getValue();
+			profile.put(entry.getKey(), speed < Double.MIN_VALUE ? 0.0 : speed);
+		}
+
+		return Collections.unmodifiableMap(profile);
+	}
+
+}
@@ -1,8 +1,8 @@
 package terraintd.pathfinder;
 
-import java.util.ArrayList;
-import java.util.List;
-
+/**
+ * The position of a node of a {@link FlowField}. The paths themselves are stored in the field.
+ */
 public class Node {
 
 	public final int x, y;
@@ -18,11 +18,6 @@ public class Node {
 	 */
 	public final boolean top;
 
-	private final List<Node> next = new ArrayList<>();
-	private double cost;
-	private boolean closed;
-	private boolean explored;
-
 	public Node(int x, int y, boolean top) {
 		this.x = x;
 		this.y = y;
@@ -37,48 +32,6 @@ public class Node {
 		return this.y + (this.top ? 0 : 0.5);
 	}
 
-	public Node[] getNextNodes() {
-		return next.toArray(new Node[next.size()]);
-	}
-
-	void addNext(Node next) {
-		this.next.add(next);
-	}
-	
-	void setNext(Node next) {
-		this.next.clear();
-		addNext(next);
-	}
-
-	public double getCost() {
-		return cost;
-	}
-
-	void setCost(double cost) {
-		this.cost = cost;
-	}
-
-	boolean isClosed() {
-		return closed;
-	}
-	
-	public boolean isExplored() {
-		return explored;
-	}
-	
-	public boolean isBlocked() {
-		return closed && !explored;
-	}
-
-	void close() {
-		this.closed = true;
-	}
-	
-	void explore() {
-		close();
-		this.explored = true;
-	}
-	
 	@Override
 	public int hashCode() {
 		final int prime = 31;
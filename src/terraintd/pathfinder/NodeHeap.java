@@ -0,0 +1,114 @@
+package terraintd.pathfinder;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of the nodes of a {@link FlowField}, ordered by cost. The heap stores node indices and keeps track of where each one is, so that a node's
+ * cost can be lowered while it is in the heap.
+ */
+class NodeHeap {
+
+	private final double[] cost;
+
+	private final int[] heap;
+	private final int[] positions;
+	private int size;
+
+	/**
+	 * <ul>
+	 * <li><b><i>NodeHeap</i></b><br>
+	 * <br>
+	 * {@code NodeHeap(FlowField field)}<br>
+	 * <br>
+	 * Creates an empty heap that can hold every node of the given field.<br>
+	 * @param field The field whose costs the nodes are ordered by
+	 *        </ul>
+	 */
+	NodeHeap(FlowField field) {
+		this.cost = field.cost;
+
+		this.heap = new int[field.size()];
+		this.positions = new int[heap.length];
+		Arrays.fill(positions, -1);
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	boolean contains(int node) {
+		return positions[node] >= 0;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>push</i></b><br>
+	 * <br>
+	 * {@code void push(int node)}<br>
+	 * <br>
+	 * Adds the given node to this heap, or moves it up if it is already in the heap and its cost has been lowered.<br>
+	 * @param node
+	 *        </ul>
+	 */
+	void push(int node) {
+		int pos = positions[node];
+
+		if (pos < 0) {
+			pos = size++;
+			heap[pos] = node;
+			positions[node] = pos;
+		}
+
+		siftUp(pos);
+	}
+
+	int pop() {
+		int first = heap[0];
+		positions[first] = -1;
+
+		int last = heap[--size];
+
+		if (size > 0) {
+			heap[0] = last;
+			positions[last] = 0;
+			siftDown(0);
+		}
+
+		return first;
+	}
+
+	private void siftUp(int pos) {
+		int node = heap[pos];
+
+		while (pos > 0) {
+			int parent = (pos - 1) >>> 1;
+			if (cost[heap[parent]] <= cost[node]) break;
+
+			heap[pos] = heap[parent];
+			positions[heap[pos]] = pos;
+			pos = parent;
+		}
+
+		heap[pos] = node;
+		positions[node] = pos;
+	}
+
+	private void siftDown(int pos) {
+		int node = heap[pos];
+
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= size) break;
+			if (child + 1 < size && cost[heap[child + 1]] < cost[heap[child]]) child++;
+			if (cost[node] <= cost[heap[child]]) break;
+
+			heap[pos] = heap[child];
+			positions[heap[pos]] = pos;
+			pos = child;
+		}
+
+		heap[pos] = node;
+		positions[node] = pos;
+	}
+
+}
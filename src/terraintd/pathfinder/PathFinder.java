@@ -1,9 +1,7 @@
 package terraintd.pathfinder;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.TreeSet;
+import java.awt.geom.Rectangle2D;
+import java.util.BitSet;
 
 import terraintd.GameLogic;
 import terraintd.object.CollidableEntity;
@@ -20,112 +18,248 @@ public class PathFinder {
 
 	private PathFinder() {}
 
-	static final Comparator<Node> nodeComp = new Comparator<Node>() {
+	public static FlowField calculatePaths(EnemyType type) {
+		return calculatePaths(type, GameLogic.getEntities(), GameLogic.getCurrentWorld());
+	}
+
+	public static FlowField calculatePaths(EnemyType type, Entity[] entities, World world) {
+		FlowField field = new FlowField(world);
 
-		@Override
-		public int compare(Node o1, Node o2) {
-			return o1 == o2 ? 0 : Double.compare(o1.getCost() + 0.0001, o2.getCost());
+		for (Entity e : entities) {
+			if (!(e instanceof CollidableEntity)) continue;
+
+			for (int n : getFootprint(field, (CollidableEntity) e))
+				field.close(n);
 		}
 
-	};
+		NodeHeap heap = new NodeHeap(field);
 
-	public static Node[][][] calculatePaths(EnemyType type) {
-		return calculatePaths(type, GameLogic.getEntities(), GameLogic.getCurrentWorld());
-	}
+		for (Node goal : world.goals)
+			heap.push(field.getIndex(goal));
 
-	public static Node[][][] calculatePaths(EnemyType type, Entity[] entities, World world) {
-		Node[][][] nodes = new Node[world.getHeight() + 1][world.getWidth() + 1][2];
+		while (!heap.isEmpty()) {
+			int node = heap.pop();
+			field.explore(node);
 
-		TreeSet<Node> nodeSet = new TreeSet<>(nodeComp);
+			for (int slot = 0; slot < 6; slot++) {
+				int n = field.getNeighbor(node, slot);
+				if (n < 0 || field.isClosed(n)) continue;
 
-		for (int y = 0; y <= world.getHeight(); y++) {
-			for (int x = 0; x <= world.getWidth(); x++) {
-				nodes[y][x][0] = new Node(x, y, false);
-				nodes[y][x][1] = new Node(x, y, true);
+				double cost = getEdgeCost(type, world, field, n, node);
+				if (cost < 0) continue;
+
+				double newCost = field.cost[node] + cost;
+				if (!heap.contains(n) || newCost - field.cost[n] < -0.0001) {
+					field.cost[n] = newCost;
+					field.setNext(n, node);
+					heap.push(n);
+				} else if (Math.abs(newCost - field.cost[n]) < 0.0001) {
+					field.addNext(n, node);
+				}
 			}
 		}
 
-		for (Entity e : entities) {
-			if (!(e instanceof CollidableEntity)) continue;
+		return field;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>repairPaths</i></b><br>
+	 * <br>
+	 * {@code public static void repairPaths(EnemyType type, FlowField field, CollidableEntity changed, boolean placed, Entity[] entities, World world)}<br>
+	 * <br>
+	 * Updates the given field in place after <code>changed</code> has been placed or removed, instead of recalculating every path. Only the nodes whose cost
+	 * depends on the nodes under <code>changed</code> are visited.<br>
+	 * <br>
+	 * Nodes that become blocked keep their old successors, so that enemies that are already between them can still walk out.<br>
+	 * @param type The type of enemy that the field was calculated for
+	 * @param field The field calculated by {@link #calculatePaths(EnemyType, Entity[], World)}
+	 * @param changed The entity that was placed or removed
+	 * @param placed <code>true</code> if <code>changed</code> was placed, <code>false</code> if it was removed
+	 * @param entities The entities in the game after the change
+	 * @param world The world that the field was calculated for
+	 *        </ul>
+	 */
+	public static void repairPaths(EnemyType type, FlowField field, CollidableEntity changed, boolean placed, Entity[] entities, World world) {
+		NodeHeap heap = new NodeHeap(field);
 
-			CollidableEntity c = (CollidableEntity) e;
+		if (placed) {
+			BitSet affected = new BitSet(field.size());
+			int[] queue = new int[field.size()];
+			int head = 0, tail = 0;
 
-			for (int y = 0; y <= c.getHeight(); y++) {
-				for (int x = 0; x <= c.getWidth(); x++) {
-					if (y < c.getHeight()) nodes[(int) (c.getY() + y)][(int) (c.getX() + x)][0].close();
-					if (x < c.getWidth()) nodes[(int) (c.getY() + y)][(int) (c.getX() + x)][1].close();
+			for (int n : getFootprint(field, changed)) {
+				if (field.isExplored(n)) {
+					affected.set(n);
+					queue[tail++] = n;
 				}
+				field.block(n);
 			}
-		}
 
-		for (Node goal : world.goals)
-			nodeSet.add(nodes[goal.y][goal.x][goal.top ? 1 : 0]);
-
-		while (nodeSet.size() > 0) {
-			Node node = nodeSet.first();
-
-			ArrayList<Node> nodeList = new ArrayList<>(nodeSet);
-			nodeList.remove(node);
-			nodeSet.clear();
-			nodeSet.addAll(nodeList);
-			node.explore();
-
-			for (Node n : getNeighbors(nodes, node)) {
-				if (n.isClosed()) continue;
-				
-				int x = node.x - (!node.top && node.x - n.x == 1 ? 1 : 0);
-				int y = node.y - (node.top && node.y - n.y == 1 ? 1 : 0);
-				double speed = type.speed.get(world.tiles[y][x].terrain);
-
-				if (speed < Double.MIN_VALUE) continue;
-
-				double newCost = node.getCost() + (n.top == node.top ? 1 : SQRT2D2) / speed;
-				if (n.getCost() == 0 || newCost - n.getCost() < -0.0001) {
-					n.setCost(newCost);
-					n.setNext(node);
-				} else if (Math.abs(newCost - n.getCost()) < 0.0001) {
-					n.addNext(node);
+			// Any node that only led through a blocked node has to find a new way
+			while (head < tail) {
+				int a = queue[head++];
+
+				for (int slot = 0; slot < 6; slot++) {
+					int n = field.getNeighbor(a, slot);
+					if (n < 0 || !field.isExplored(n) || affected.get(n) || !field.removeNext(n, a)) continue;
+
+					if (!field.hasNext(n)) {
+						affected.set(n);
+						queue[tail++] = n;
+					}
 				}
-				nodeSet.add(n);
 			}
-		}
 
-		return nodes;
-	}
-	
-	public static final Node[] getNeighbors(Node[][][] nodes, Node node) {
-		return getNeighbors(nodes, node.x, node.y, node.top);
-	}
-	
-	public static final Node[] getNeighbors(Node[][][] nodes, int x, int y, boolean top) {
-		List<Node> neighbors = new ArrayList<>();
-		if (top) {
-			if (y != 0) {
-				neighbors.add(nodes[y - 1][x][1]);
-				neighbors.add(nodes[y - 1][x][0]);
-				if (x != nodes[0].length - 1) neighbors.add(nodes[y - 1][x + 1][0]);
+			for (int n = affected.nextSetBit(0); n >= 0; n = affected.nextSetBit(n + 1)) {
+				if (!field.isBlocked(n)) field.reset(n);
 			}
 
-			if (y != nodes.length - 1) {
-				neighbors.add(nodes[y + 1][x][1]);
-				neighbors.add(nodes[y][x][0]);
-				if (x != nodes[0].length - 1) neighbors.add(nodes[y][x + 1][0]);
+			for (int n = affected.nextSetBit(0); n >= 0; n = affected.nextSetBit(n + 1)) {
+				if (!field.isBlocked(n)) reach(type, field, world, heap, n);
 			}
 		} else {
-			if (x != 0) {
-				neighbors.add(nodes[y][x - 1][0]);
-				neighbors.add(nodes[y][x - 1][1]);
-				if (y != nodes.length - 1) neighbors.add(nodes[y + 1][x - 1][1]);
+			BitSet blocked = new BitSet(field.size());
+			Rectangle2D area = changed.getRectangle();
+
+			for (Entity e : entities) {
+				if (!(e instanceof CollidableEntity) || e == changed || !e.getRectangle().intersects(area.getX() - 1, area.getY() - 1, area.getWidth() + 2, area.getHeight() + 2)) continue;
+
+				for (int n : getFootprint(field, (CollidableEntity) e))
+					blocked.set(n);
 			}
 
-			if (x != nodes[0].length - 1) {
-				neighbors.add(nodes[y][x + 1][0]);
-				neighbors.add(nodes[y][x][1]);
-				if (y != nodes.length - 1) neighbors.add(nodes[y + 1][x][1]);
+			BitSet goals = new BitSet(field.size());
+			for (Node goal : world.goals)
+				goals.set(field.getIndex(goal));
+
+			int[] opened = getFootprint(field, changed);
+			for (int i = 0; i < opened.length; i++) {
+				int n = opened[i];
+				opened[i] = -1;
+				if (!field.isBlocked(n) || blocked.get(n)) continue;
+
+				field.reset(n);
+				if (goals.get(n)) {
+					heap.push(n);
+				} else {
+					opened[i] = n;
+				}
+			}
+
+			for (int n : opened) {
+				if (n >= 0) reach(type, field, world, heap, n);
 			}
 		}
-		
-		return neighbors.toArray(new Node[neighbors.size()]);
+
+		while (!heap.isEmpty()) {
+			int node = heap.pop();
+			field.explore(node);
+
+			if (field.cost[node] > 0) {
+				field.clearNext(node);
+				for (int slot = 0; slot < 6; slot++) {
+					int m = field.getNeighbor(node, slot);
+					if (m < 0 || !field.isExplored(m)) continue;
+
+					double cost = getEdgeCost(type, world, field, node, m);
+					if (cost >= 0 && Math.abs(field.cost[m] + cost - field.cost[node]) < 0.0001) field.addNext(node, m);
+				}
+			}
+
+			for (int slot = 0; slot < 6; slot++) {
+				int n = field.getNeighbor(node, slot);
+				if (n < 0 || field.isBlocked(n)) continue;
+
+				double cost = getEdgeCost(type, world, field, n, node);
+				if (cost < 0) continue;
+
+				double newCost = field.cost[node] + cost;
+				if (field.isExplored(n)) {
+					if (newCost - field.cost[n] < -0.0001) {
+						field.open(n);
+						field.cost[n] = newCost;
+						heap.push(n);
+					} else if (Math.abs(newCost - field.cost[n]) < 0.0001 && !field.hasNext(n, node)) {
+						field.addNext(n, node);
+					}
+				} else if (!heap.contains(n) || newCost - field.cost[n] < -0.0001) {
+					field.cost[n] = newCost;
+					heap.push(n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gives <code>node</code> the lowest cost through any of its explored neighbors, and adds it to the heap if there is one.
+	 */
+	private static void reach(EnemyType type, FlowField field, World world, NodeHeap heap, int node) {
+		boolean reached = false;
+		double best = 0;
+
+		for (int slot = 0; slot < 6; slot++) {
+			int m = field.getNeighbor(node, slot);
+			if (m < 0 || !field.isExplored(m)) continue;
+
+			double cost = getEdgeCost(type, world, field, node, m);
+			if (cost < 0) continue;
+
+			if (!reached || field.cost[m] + cost < best) {
+				best = field.cost[m] + cost;
+				reached = true;
+			}
+		}
+
+		if (reached) {
+			field.cost[node] = best;
+			heap.push(node);
+		}
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getEdgeCost</i></b><br>
+	 * <br>
+	 * {@code static double getEdgeCost(EnemyType type, World world, FlowField field, int from, int to)}<br>
+	 * <br>
+	 * @return The time that it takes an enemy of the given type to walk from <code>from</code> to its neighbor <code>to</code>, or <code>-1</code> if it
+	 *         cannot.
+	 *         </ul>
+	 */
+	static double getEdgeCost(EnemyType type, World world, FlowField field, int from, int to) {
+		boolean top = field.isTop(to);
+		int x = field.getX(to) - (!top && field.getX(to) - field.getX(from) == 1 ? 1 : 0);
+		int y = field.getY(to) - (top && field.getY(to) - field.getY(from) == 1 ? 1 : 0);
+		double speed = type.speed.get(world.tiles[y][x].terrain);
+
+		if (speed < Double.MIN_VALUE) return -1;
+
+		return (field.isTop(from) == top ? 1 : SQRT2D2) / speed;
+	}
+
+	/**
+	 * <ul>
+	 * <li><b><i>getFootprint</i></b><br>
+	 * <br>
+	 * {@code public static int[] getFootprint(FlowField field, CollidableEntity c)}<br>
+	 * <br>
+	 * @return The indices of the nodes that are blocked by the given entity.
+	 *         </ul>
+	 */
+	public static int[] getFootprint(FlowField field, CollidableEntity c) {
+		int width = (int) Math.ceil(c.getWidth()), height = (int) Math.ceil(c.getHeight());
+		int[] footprint = new int[(width + 1) * height + width * (height + 1)];
+		int i = 0;
+
+		for (int y = 0; y <= height; y++) {
+			for (int x = 0; x <= width; x++) {
+				if (y < height) footprint[i++] = field.getIndex((int) (c.getX() + x), (int) (c.getY() + y), false);
+				if (x < width) footprint[i++] = field.getIndex((int) (c.getX() + x), (int) (c.getY() + y), true);
+			}
+		}
+
+		return footprint;
 	}
 
 }
@@ -371,20 +371,22 @@ public class GamePanel extends JPanel {
 		for (Node goal : GameLogic.getCurrentWorld().goals)
 			g.drawImage(GamePanel.goal, (int) (dx + tile * (goal.getAbsX() - 0.5)), (int) (dy + (tile * (goal.getAbsY() - 0.5))), (int) tile, (int) tile, null);
 
-		for (Projectile p : GameLogic.getProjectiles()) {
-			ImageType img = p.getDeathTime() >= 0 ? p.type.explosion : p.type.image;
+		for (Projectile p : GameLogic.getProjectileView()) {
+			if (p == null) break;
 
-			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, p.type.dyingFade ? 1 - (float) (Math.max(0, p.getDeathTime()) / p.type.dyingFadeTime) : 1));
+			ImageType img = p.getDeathTime() >= 0 ? p.getType().explosion : p.getType().image;
+
+			g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, p.getType().dyingFade ? 1 - (float) (Math.max(0, p.getDeathTime()) / p.getType().dyingFadeTime) : 1));
 			AffineTransform trans = new AffineTransform();
 
-			switch (p.type.delivery) {
+			switch (p.getType().delivery) {
 				case AREA:
 					g.drawImage(img.image, (int) (dx + tile * (p.getX() - p.getRadius())), (int) (dy + tile * (p.getY() - p.getRadius())), (int) (2 * tile * p.getRadius()), (int) (2 * tile * p.getRadius()), null);
 					break;
 				case LINE:
 					trans.translate(dx + tile * (p.getX() - img.width * 0.5), dy + tile * (p.getY() - img.height * 0.5));
 					trans.rotate(p.getRotation(), tile * img.width * 0.5, tile * img.height * 0.5);
-					trans.scale(tile * (p.getRadius() - p.type.offset) / img.image.getWidth(), tile * img.height / img.image.getHeight());
+					trans.scale(tile * (p.getRadius() - p.getType().offset) / img.image.getWidth(), tile * img.height / img.image.getHeight());
 					g.drawImage(img.image, trans, null);
 					break;
 				case SECTOR:
@@ -393,7 +395,7 @@ public class GamePanel extends JPanel {
 					s.drawImage(img.image, 0, 0, (int) (2 * tile * p.getRadius()), (int) (2 * tile * p.getRadius()), null);
 					s.setComposite(AlphaComposite.getInstance(AlphaComposite.CLEAR));
 
-					s.fillArc(0, 0, (int) (2 * tile * p.getRadius()), (int) (2 * tile * p.getRadius()), (int) Math.toDegrees(p.type.angle * 0.5 - p.getRotation()), (int) (360.0 - Math.toDegrees(p.type.angle)));
+					s.fillArc(0, 0, (int) (2 * tile * p.getRadius()), (int) (2 * tile * p.getRadius()), (int) Math.toDegrees(p.getType().angle * 0.5 - p.getRotation()), (int) (360.0 - Math.toDegrees(p.getType().angle)));
 					g.drawImage(sec, (int) (dx + tile * (p.getX() - p.getRadius())), (int) (dy + tile * (p.getY() - p.getRadius())), null);
 					break;
 				case SINGLE_TARGET:
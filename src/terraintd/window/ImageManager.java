@@ -73,7 +73,7 @@ public class ImageManager {
 			this.type = type;
 			StatusEffectType[] statusEffectTypes = new StatusEffectType[statusEffects.length];
 			for (int i = 0; i < statusEffects.length; i++) {
-				statusEffectTypes[i] = statusEffects[i].type;
+				statusEffectTypes[i] = statusEffects[i].getType();
 			}
 			this.statusEffects = statusEffectTypes;
 			this.dead = dead;
@@ -622,7 +622,7 @@ public class InfoPanel extends JPanel {
 			if (!button.canTarget()) return;
 
 			button.index++;
-			button.gun.setTargetType(TargetType.values()[button.index %= TargetType.values().length]);
+			GameLogic.setTargetType(button.gun, TargetType.values()[button.index %= TargetType.values().length]);
 			button.setText(Language.get("target") + ": " + button.gun.getTargetType());
 		}
 	};
@@ -0,0 +1,136 @@
+package terraintd.window;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import terraintd.GameListener;
+import terraintd.GameLogic;
+import terraintd.GameLogic.State;
+import terraintd.Language;
+import terraintd.object.Entity;
+import terraintd.object.Tower;
+import terraintd.types.Purchasable;
+
+/**
+ * Keeps the {@link Window} up to date with {@link GameLogic}.
+ */
+public class WindowUpdater implements GameListener {
+
+	private static final Runnable nextLevel = new Runnable() {
+
+		@Override
+		public void run() {
+			try {
+				Thread.sleep(2500);
+			} catch (InterruptedException e) {}
+
+			SwingUtilities.invokeLater(GameLogic::beginLevel);
+		}
+	};
+
+	/**
+	 * Whether the player has already been told that the autosave failed, so that they are not told again every time it is retried
+	 */
+	private volatile boolean autosaveFailed;
+
+	@Override
+	public void frameProcessed() {
+		GamePanel.repaintPanel();
+		BuyPanel.updateButtons();
+	}
+
+	@Override
+	public void framePaused() {
+		Entity selected = GameLogic.getSelectedEntity();
+		if (selected != null) {
+			Rectangle2D rect = selected.getRectangle();
+			GamePanel.repaintPanel((int) (GamePanel.getDx() + rect.getX() * GamePanel.getTile()), (int) (GamePanel.getDy() + rect.getY() * GamePanel.getTile()), (int) (GamePanel.getTile() * rect.getWidth()), (int) (GamePanel.getTile() * rect.getHeight()));
+		}
+	}
+
+	@Override
+	public void statsChanged() {
+		InfoPanel.updateMoney();
+		InfoPanel.paintHealthBar();
+	}
+
+	@Override
+	public void entitiesChanged() {
+		GamePanel.repaintPanel();
+		BuyPanel.updateButtons();
+	}
+
+	@Override
+	public void levelEnded(State state) {
+		Window.selectButton(0);
+		BuyPanel.updateButtons();
+		Window.setButtonsEnabled(false);
+		GamePanel.repaintPanel();
+
+		if (state == State.COMPLETE) new Thread(nextLevel).start();
+	}
+
+	@Override
+	public void levelStarted() {
+		if (InfoPanel.infoPanel != null) Window.setButtonsEnabled(true);
+		Window.repaintWindow();
+		Window.updateLevel();
+		if (BuyPanel.buyPanel != null) BuyPanel.updateButtons();
+	}
+
+	@Override
+	public void selectionChanged(Entity selected) {
+		InfoPanel.setDisplayedObject(selected);
+		if (selected instanceof Tower) {
+			BuyPanel.setUpgrades(((Tower) selected).getType().upgrades);
+		} else {
+			BuyPanel.setUpgrades();
+		}
+	}
+
+	@Override
+	public void selectionUpdated() {
+		InfoPanel.refreshDisplay();
+	}
+
+	@Override
+	public void buyingChanged(Purchasable buying) {
+		InfoPanel.setDisplayedObject(buying);
+		GamePanel.repaintPanel();
+	}
+
+	@Override
+	public void gameReset() {
+		if (InfoPanel.infoPanel != null) Window.setButtonsEnabled(true);
+		Window.selectButton(0);
+
+		GamePanel.resetView();
+		Window.repaintWindow();
+		Window.updateLevel();
+		InfoPanel.setDisplayedObject(null);
+		if (BuyPanel.buyPanel != null) BuyPanel.updateButtons();
+	}
+
+	@Override
+	public void gameOpened() {
+		gameReset();
+
+		Window.repaintWindow();
+		InfoPanel.refreshDisplay();
+		BuyPanel.updateButtons();
+	}
+
+	@Override
+	public void saveFailed(Path path, IOException e) {
+		if (path.equals(GameLogic.AUTOSAVE_PATH)) {
+			if (autosaveFailed) return;
+			autosaveFailed = true;
+		}
+
+		SwingUtilities.invokeLater(() -> JOptionPane.showOptionDialog(Window.window, String.format("<html>%s<br />%s</html>", path.toString(), Language.get("cannot-write")), Language.get("title-save-failed"), JOptionPane.DEFAULT_OPTION, JOptionPane.ERROR_MESSAGE, null, new String[] {Language.get("accept")}, null));
+	}
+}